@@ -0,0 +1,69 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A packet sink which counts the packets sent to each player by packet type. The packets
+ * themselves are not kept to avoid retaining memory.
+ */
+public final class CapturingPacketSink implements FakeServer.PacketSink {
+
+  private final Map<Player, LongAdder> packetsByPlayer = new ConcurrentHashMap<>();
+  private final Map<PacketType, LongAdder> packetsByType = new ConcurrentHashMap<>();
+  private final LongAdder packets = new LongAdder();
+
+  @Override
+  public void accept(@NotNull Player player, @NotNull PacketContainer packet) {
+    this.packets.increment();
+    this.packetsByPlayer.computeIfAbsent(player, $ -> new LongAdder()).increment();
+    this.packetsByType.computeIfAbsent(packet.getType(), $ -> new LongAdder()).increment();
+  }
+
+  /**
+   * Get the amount of packets captured so far.
+   *
+   * @return the amount of captured packets.
+   */
+  public long getPackets() {
+    return this.packets.sum();
+  }
+
+  /**
+   * Get the amount of packets captured so far for the given player.
+   *
+   * @param player the receiver of the packets.
+   * @return the amount of packets sent to the player.
+   */
+  public long getPackets(@NotNull Player player) {
+    LongAdder packets = this.packetsByPlayer.get(player);
+    return packets == null ? 0 : packets.sum();
+  }
+
+  /**
+   * Get the amount of packets captured so far by the name of the packet type, sorted by name.
+   *
+   * @return the amount of captured packets by packet type.
+   */
+  @NotNull
+  public Map<String, Long> getPacketsByType() {
+    Map<String, Long> packetsByType = new TreeMap<>();
+    this.packetsByType.forEach((type, packets) -> packetsByType.put(type.name(), packets.sum()));
+    return packetsByType;
+  }
+
+  /**
+   * Removes all captured counts.
+   */
+  public void reset() {
+    this.packetsByPlayer.clear();
+    this.packetsByType.clear();
+    this.packets.reset();
+  }
+}
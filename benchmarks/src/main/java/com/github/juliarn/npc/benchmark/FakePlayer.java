@@ -0,0 +1,134 @@
+package com.github.juliarn.npc.benchmark;
+
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A synthetic player of the {@link FakeServer}, backed by a mutable location. Only the methods
+ * the npc pool uses are implemented, all other methods return the default value of their return
+ * type.
+ */
+public final class FakePlayer {
+
+  private final String name;
+  private final UUID uniqueId;
+  private final Location location;
+  private final Player player;
+  private volatile boolean online;
+
+  /**
+   * Creates a new fake player.
+   *
+   * @param name     the name of the player.
+   * @param location the initial location of the player, copied.
+   */
+  public FakePlayer(@NotNull String name, @NotNull Location location) {
+    this.name = name;
+    this.uniqueId = UUID.nameUUIDFromBytes(("FakePlayer:" + name).getBytes());
+    this.location = location.clone();
+    this.player = FakeServer.proxy(Player.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+        case "getDisplayName":
+        case "getPlayerListName":
+          return this.name;
+        case "getUniqueId":
+          return this.uniqueId;
+        case "getWorld":
+          return this.location.getWorld();
+        case "getLocation":
+          if (args != null && args.length == 1) {
+            return copy(this.location, (Location) args[0]);
+          }
+          return this.location.clone();
+        case "getEyeLocation":
+          return this.location.clone().add(0, 1.62D, 0);
+        case "isOnline":
+        case "isValid":
+          return this.online;
+        case "teleport":
+          if (args[0] instanceof Location) {
+            copy((Location) args[0], this.location);
+            return true;
+          }
+          return false;
+        default:
+          return FakeServer.defaultValue(proxy, method, args);
+      }
+    });
+  }
+
+  private static Location copy(@NotNull Location source, Location target) {
+    if (target != null) {
+      target.setWorld(source.getWorld());
+      target.setX(source.getX());
+      target.setY(source.getY());
+      target.setZ(source.getZ());
+      target.setYaw(source.getYaw());
+      target.setPitch(source.getPitch());
+    }
+    return target;
+  }
+
+  /**
+   * Get the Bukkit player backed by this fake player.
+   *
+   * @return the player.
+   */
+  @NotNull
+  public Player getPlayer() {
+    return this.player;
+  }
+
+  /**
+   * Get the current location of this player. Changes to the returned location move the player.
+   *
+   * @return the mutable location of this player.
+   */
+  @NotNull
+  public Location getLocation() {
+    return this.location;
+  }
+
+  /**
+   * Moves this player by the given offset.
+   *
+   * @param x the x offset.
+   * @param y the y offset.
+   * @param z the z offset.
+   */
+  public void move(double x, double y, double z) {
+    this.location.add(x, y, z);
+  }
+
+  /**
+   * Teleports this player to the given position.
+   *
+   * @param world the target world.
+   * @param x     the target x coordinate.
+   * @param y     the target y coordinate.
+   * @param z     the target z coordinate.
+   */
+  public void teleport(@NotNull World world, double x, double y, double z) {
+    this.location.setWorld(world);
+    this.location.setX(x);
+    this.location.setY(y);
+    this.location.setZ(z);
+  }
+
+  /**
+   * Get if this player is currently online on the fake server.
+   *
+   * @return if this player is online.
+   */
+  public boolean isOnline() {
+    return this.online;
+  }
+
+  void setOnline(boolean online) {
+    this.online = online;
+  }
+}
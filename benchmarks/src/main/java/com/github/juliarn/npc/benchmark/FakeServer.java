@@ -0,0 +1,458 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A lightweight stand-in for a Bukkit server and ProtocolLib, which allows to run a npc pool
+ * without booting a real server. The scheduler of the server only runs tasks when the server gets
+ * {@link #advance(int) advanced}, async tasks are run on the calling thread as well. All packets
+ * sent through ProtocolLib are passed to the current {@link PacketSink}.
+ * <p>
+ * The server jar is still needed on the classpath to construct the packets. The revision of the
+ * server classes can be set using the {@code npc.benchmark.serverRevision} system property,
+ * default is {@code v1_8_R3}.
+ * </p>
+ */
+public final class FakeServer {
+
+  private static final Logger LOGGER = Logger.getLogger("FakeServer");
+  private static final String SERVER_REVISION = System
+      .getProperty("npc.benchmark.serverRevision", "v1_8_R3");
+  private static final String MINECRAFT_VERSION = System
+      .getProperty("npc.benchmark.minecraftVersion", "1.8.8");
+  private static final int VIEW_DISTANCE = Integer
+      .getInteger("npc.benchmark.viewDistance", 10);
+
+  private static FakeServer instance;
+
+  private final Plugin plugin;
+  private final List<World> worlds = new ArrayList<>();
+  private final List<Player> onlinePlayers = new ArrayList<>();
+  private final List<ScheduledTask> tasks = new ArrayList<>();
+
+  private volatile PacketSink packetSink = ($, $1) -> {
+  };
+  private long currentTick;
+  private int nextTaskId;
+
+  private FakeServer() {
+    this.plugin = proxy(Plugin.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+          return "NPCBenchmark";
+        case "getLogger":
+          return LOGGER;
+        case "isEnabled":
+          return true;
+        default:
+          return defaultValue(proxy, method, args);
+      }
+    });
+  }
+
+  /**
+   * Installs the fake server as the Bukkit server and as the ProtocolLib protocol manager, or
+   * returns the already installed instance.
+   *
+   * @return the installed fake server.
+   */
+  @NotNull
+  public static synchronized FakeServer install() {
+    if (instance == null) {
+      FakeServer server = new FakeServer();
+      server.createWorld("world");
+      Bukkit.setServer(server.createServer());
+
+      MinecraftReflection.setMinecraftPackage(
+          "net.minecraft.server." + SERVER_REVISION,
+          "org.bukkit.craftbukkit." + SERVER_REVISION);
+      installProtocolManager(server.createProtocolManager());
+      bootstrap();
+
+      instance = server;
+    }
+    return instance;
+  }
+
+  /**
+   * Creates a dynamic proxy of the given interface.
+   *
+   * @param type    the interface to proxy.
+   * @param handler the handler of the method calls.
+   * @param <T>     the type of the interface.
+   * @return the created proxy.
+   */
+  @NotNull
+  static <T> T proxy(@NotNull Class<T> type, @NotNull InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(
+        FakeServer.class.getClassLoader(),
+        new Class<?>[]{type},
+        handler));
+  }
+
+  /**
+   * Handles the methods of {@link Object} by identity and returns the default value of the return
+   * type for all other methods.
+   *
+   * @param proxy  the proxy the method was called on.
+   * @param method the called method.
+   * @param args   the arguments of the call.
+   * @return the result of the call.
+   */
+  static Object defaultValue(@NotNull Object proxy, @NotNull Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return args != null && args.length == 1 && proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return method.getDeclaringClass().getSimpleName() + "@"
+            + Integer.toHexString(System.identityHashCode(proxy));
+      default:
+        break;
+    }
+
+    Class<?> returnType = method.getReturnType();
+    if (!returnType.isPrimitive() || returnType == void.class) {
+      return null;
+    } else if (returnType == boolean.class) {
+      return false;
+    } else if (returnType == char.class) {
+      return '\0';
+    } else if (returnType == float.class) {
+      return 0F;
+    } else if (returnType == double.class) {
+      return 0D;
+    } else if (returnType == long.class) {
+      return 0L;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == short.class) {
+      return (short) 0;
+    } else {
+      return (byte) 0;
+    }
+  }
+
+  /**
+   * Replaces the protocol manager of ProtocolLib, which is normally set when the plugin loads.
+   *
+   * @param protocolManager the protocol manager to use.
+   */
+  private static void installProtocolManager(@NotNull ProtocolManager protocolManager) {
+    try {
+      for (Field field : ProtocolLibrary.class.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())
+            && field.getType() == ProtocolManager.class) {
+          field.setAccessible(true);
+          field.set(null, protocolManager);
+          return;
+        }
+      }
+    } catch (IllegalAccessException exception) {
+      throw new IllegalStateException("Unable to install the protocol manager", exception);
+    }
+    throw new IllegalStateException("ProtocolLibrary has no protocol manager field");
+  }
+
+  /**
+   * Initializes the registries of the server classes, which are needed to convert items. The
+   * bootstrap method is configured using the {@code npc.benchmark.bootstrap} system property in
+   * the format {@code class#method}, default is {@code DispenserRegistry#c}.
+   */
+  private static void bootstrap() {
+    String[] bootstrap = System.getProperty("npc.benchmark.bootstrap", "DispenserRegistry#c")
+        .split("#", 2);
+    try {
+      MinecraftReflection.getMinecraftClass(bootstrap[0])
+          .getMethod(bootstrap[1])
+          .invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException exception) {
+      LOGGER.warning("Unable to bootstrap the server registries: " + exception);
+    }
+  }
+
+  /**
+   * Get the plugin which should be used to create npc pools.
+   *
+   * @return the plugin of the fake server.
+   */
+  @NotNull
+  public Plugin getPlugin() {
+    return this.plugin;
+  }
+
+  /**
+   * Get the default world of the fake server.
+   *
+   * @return the default world.
+   */
+  @NotNull
+  public World getDefaultWorld() {
+    return this.worlds.get(0);
+  }
+
+  /**
+   * Creates a new world in which all chunks are loaded.
+   *
+   * @param name the name of the world.
+   * @return the created world.
+   */
+  @NotNull
+  public World createWorld(@NotNull String name) {
+    UUID uniqueId = UUID.nameUUIDFromBytes(name.getBytes());
+    World world = proxy(World.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+          return name;
+        case "getUID":
+          return uniqueId;
+        case "isChunkLoaded":
+          return true;
+        default:
+          return defaultValue(proxy, method, args);
+      }
+    });
+    this.worlds.add(world);
+    return world;
+  }
+
+  /**
+   * Adds the given player to the online players.
+   *
+   * @param player the player which joins.
+   */
+  public void join(@NotNull FakePlayer player) {
+    player.setOnline(true);
+    this.onlinePlayers.add(player.getPlayer());
+  }
+
+  /**
+   * Removes the given player from the online players.
+   *
+   * @param player the player which quits.
+   */
+  public void quit(@NotNull FakePlayer player) {
+    player.setOnline(false);
+    this.onlinePlayers.remove(player.getPlayer());
+  }
+
+  /**
+   * Sets the sink which receives all packets sent through ProtocolLib.
+   *
+   * @param packetSink the new packet sink.
+   */
+  public void setPacketSink(@NotNull PacketSink packetSink) {
+    this.packetSink = Objects.requireNonNull(packetSink, "packetSink");
+  }
+
+  /**
+   * Get the amount of server ticks run since the creation of the fake server.
+   *
+   * @return the current server tick.
+   */
+  public long getCurrentTick() {
+    return this.currentTick;
+  }
+
+  /**
+   * Runs the given amount of server ticks, running all tasks which are due in each tick.
+   *
+   * @param ticks the amount of ticks to run.
+   */
+  public void advance(int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      this.currentTick++;
+
+      // tasks scheduled while running are not due before the next tick
+      List<ScheduledTask> dueTasks = new ArrayList<>();
+      for (Iterator<ScheduledTask> iterator = this.tasks.iterator(); iterator.hasNext(); ) {
+        ScheduledTask task = iterator.next();
+        if (task.nextRun <= this.currentTick) {
+          dueTasks.add(task);
+          if (task.period > 0) {
+            task.nextRun += task.period;
+          } else {
+            iterator.remove();
+          }
+        }
+      }
+
+      // like the real scheduler, the sync tasks of a tick run before the async ones get started
+      dueTasks.sort((left, right) -> Boolean.compare(!left.sync, !right.sync));
+      for (ScheduledTask task : dueTasks) {
+        if (!task.cancelled) {
+          task.runnable.run();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all players, worlds except the default one and scheduled tasks, for example after a
+   * benchmark trial.
+   */
+  public void reset() {
+    this.onlinePlayers.clear();
+    this.tasks.clear();
+    this.worlds.subList(1, this.worlds.size()).clear();
+    this.packetSink = ($, $1) -> {
+    };
+  }
+
+  @NotNull
+  private Server createServer() {
+    BukkitScheduler scheduler = proxy(BukkitScheduler.class, this::handleSchedulerCall);
+    PluginManager pluginManager = proxy(PluginManager.class, FakeServer::defaultValue);
+    // reporting the incoming channel as registered skips its registration, it's never used
+    Messenger messenger = proxy(Messenger.class, (proxy, method, args) ->
+        method.getName().equals("isIncomingChannelRegistered")
+            ? Boolean.TRUE
+            : defaultValue(proxy, method, args));
+
+    return proxy(Server.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getName":
+          return "FakeServer";
+        case "getVersion":
+          return "git-Spigot-fake (MC: " + MINECRAFT_VERSION + ")";
+        case "getBukkitVersion":
+          return MINECRAFT_VERSION + "-R0.1-SNAPSHOT";
+        case "getLogger":
+          return LOGGER;
+        case "getScheduler":
+          return scheduler;
+        case "getPluginManager":
+          return pluginManager;
+        case "getMessenger":
+          return messenger;
+        case "getViewDistance":
+          return VIEW_DISTANCE;
+        case "getOnlinePlayers":
+          return Collections.unmodifiableList(this.onlinePlayers);
+        case "getWorlds":
+          return Collections.unmodifiableList(this.worlds);
+        case "isPrimaryThread":
+          return true;
+        default:
+          return defaultValue(proxy, method, args);
+      }
+    });
+  }
+
+  @NotNull
+  private ProtocolManager createProtocolManager() {
+    return proxy(ProtocolManager.class, (proxy, method, args) -> {
+      if (method.getName().equals("sendServerPacket")) {
+        this.packetSink.accept((Player) args[0], (PacketContainer) args[1]);
+        return null;
+      }
+      return defaultValue(proxy, method, args);
+    });
+  }
+
+  private Object handleSchedulerCall(Object proxy, Method method, Object[] args) {
+    String name = method.getName();
+    if (!name.startsWith("runTask")) {
+      return defaultValue(proxy, method, args);
+    }
+
+    boolean sync = !name.endsWith("Asynchronously");
+    long delay = args.length > 2 ? (long) args[2] : 0;
+    long period = args.length > 3 ? (long) args[3] : 0;
+
+    ScheduledTask task = new ScheduledTask(
+        ++this.nextTaskId,
+        (Runnable) args[1],
+        sync,
+        // a delay of 0 runs the task in the next tick
+        this.currentTick + Math.max(delay, 1),
+        period);
+    this.tasks.add(task);
+    return task.asBukkitTask((Plugin) args[0]);
+  }
+
+  /**
+   * Receives the packets sent through ProtocolLib.
+   */
+  @FunctionalInterface
+  public interface PacketSink {
+
+    /**
+     * Accepts a packet sent to a player.
+     *
+     * @param player the player the packet is sent to.
+     * @param packet the sent packet.
+     */
+    void accept(@NotNull Player player, @NotNull PacketContainer packet);
+  }
+
+  /**
+   * A task scheduled using the scheduler of the fake server.
+   */
+  private final class ScheduledTask {
+
+    private final int taskId;
+    private final Runnable runnable;
+    private final boolean sync;
+    private final long period;
+    private long nextRun;
+    private boolean cancelled;
+
+    private ScheduledTask(int taskId, Runnable runnable, boolean sync, long nextRun, long period) {
+      this.taskId = taskId;
+      this.runnable = runnable;
+      this.sync = sync;
+      this.nextRun = nextRun;
+      this.period = period;
+    }
+
+    @NotNull
+    private BukkitTask asBukkitTask(@NotNull Plugin owner) {
+      return proxy(BukkitTask.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getTaskId":
+            return this.taskId;
+          case "getOwner":
+            return owner;
+          case "isSync":
+            return this.sync;
+          case "isCancelled":
+            return this.cancelled;
+          case "cancel":
+            this.cancelled = true;
+            FakeServer.this.tasks.remove(this);
+            return null;
+          default:
+            return defaultValue(proxy, method, args);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.github.juliarn.npc.NPCPool;
+import com.github.juliarn.npc.NPCPoolMetrics;
+import com.github.juliarn.npc.event.PlayerNPCHideEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drives a npc pool with synthetic players on the {@link FakeServer}, without booting a real
+ * server, and reports the packets sent per player, the shows and hides and the tick times. The
+ * time is simulated, one server tick is run after the other as fast as possible.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.github.juliarn.npc.benchmark.LoadSimulation
+ * [--players 500] [--npcs 5000] [--area 1024] [--seconds 60] [--parallelism 1]
+ * [--max-visible 0] [--pattern all|random_walk|crowd|teleport_storm]}
+ * </p>
+ */
+public final class LoadSimulation {
+
+  private static final int TICKS_PER_SECOND = 20;
+  private static final int WARMUP_TICKS = 40;
+  /**
+   * The walking speed of a player in blocks per tick.
+   */
+  private static final double WALK_SPEED = 4.317D / TICKS_PER_SECOND;
+
+  private final FakeServer server;
+  private final Map<String, String> options;
+  private final int players;
+  private final int npcs;
+  private final int area;
+  private final int seconds;
+
+  private LoadSimulation(@NotNull FakeServer server, @NotNull Map<String, String> options) {
+    this.server = server;
+    this.options = options;
+    this.players = this.intOption("players", 500);
+    this.npcs = this.intOption("npcs", 5000);
+    this.area = this.intOption("area", 1024);
+    this.seconds = this.intOption("seconds", 60);
+  }
+
+  public static void main(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+
+    LoadSimulation simulation = new LoadSimulation(FakeServer.install(), options);
+    String pattern = options.getOrDefault("pattern", "all");
+    for (MovementPattern movementPattern : MovementPattern.values()) {
+      if (pattern.equalsIgnoreCase("all") || pattern.equalsIgnoreCase(movementPattern.name())) {
+        simulation.run(movementPattern);
+      }
+    }
+  }
+
+  /**
+   * Get the value at the given percentile of the sorted {@code values}, using the nearest rank.
+   *
+   * @param sortedValues the sorted values.
+   * @param percentile   the percentile, between {@code 0} and {@code 100}.
+   * @return the value at the percentile.
+   */
+  private static long percentile(long[] sortedValues, double percentile) {
+    if (sortedValues.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100 * sortedValues.length);
+    return sortedValues[Math.max(rank, 1) - 1];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private int intOption(@NotNull String name, int defaultValue) {
+    String value = this.options.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  /**
+   * Runs the simulation with the given movement pattern and prints the report.
+   *
+   * @param pattern the movement pattern of the players.
+   */
+  private void run(@NotNull MovementPattern pattern) {
+    Random random = new Random(42);
+    World world = this.server.getDefaultWorld();
+    CapturingPacketSink packetSink = new CapturingPacketSink();
+
+    this.server.reset();
+    this.server.setPacketSink(packetSink);
+
+    // the players are online before the pool is created, the pool registers them on creation
+    List<FakePlayer> fakePlayers = new ArrayList<>(this.players);
+    for (int i = 0; i < this.players; i++) {
+      FakePlayer player = new FakePlayer(
+          "Player" + i,
+          VisibilityTickBenchmark.randomLocation(world, this.area, random));
+      fakePlayers.add(player);
+      this.server.join(player);
+    }
+
+    NPCPool pool = NPCPool.builder(this.server.getPlugin())
+        .tickParallelism(this.intOption("parallelism", 1))
+        .maxVisibleNpcs(this.intOption("max-visible", 0))
+        .build();
+    VisibilityTickBenchmark.spawnNpcs(pool, world, this.npcs, this.area, random);
+
+    // the initial spawn of all npcs is not part of the measurement
+    this.server.advance(WARMUP_TICKS);
+    NPCPoolMetrics metrics = pool.getMetrics();
+    long startShows = metrics.getShowCount();
+    Map<PlayerNPCHideEvent.Reason, Long> startHides = new EnumMap<>(
+        PlayerNPCHideEvent.Reason.class);
+    for (PlayerNPCHideEvent.Reason reason : PlayerNPCHideEvent.Reason.values()) {
+      startHides.put(reason, metrics.getHideCount(reason));
+    }
+    packetSink.reset();
+
+    int ticks = this.seconds * TICKS_PER_SECOND;
+    long[] tickTimes = new long[ticks];
+    for (int tick = 0; tick < ticks; tick++) {
+      pattern.move(pool, fakePlayers, world, this.area, random, tick);
+
+      long start = System.nanoTime();
+      this.server.advance(1);
+      tickTimes[tick] = System.nanoTime() - start;
+    }
+
+    pool.close();
+    this.server.reset();
+
+    this.report(pattern, fakePlayers, packetSink, metrics, startShows, startHides, tickTimes);
+  }
+
+  private void report(
+      @NotNull MovementPattern pattern,
+      @NotNull List<FakePlayer> fakePlayers,
+      @NotNull CapturingPacketSink packetSink,
+      @NotNull NPCPoolMetrics metrics,
+      long startShows,
+      @NotNull Map<PlayerNPCHideEvent.Reason, Long> startHides,
+      long[] tickTimes
+  ) {
+    double seconds = this.seconds;
+    System.out.printf(Locale.ROOT, "%s: %d players, %d npcs, %dx%d blocks, %d seconds%n",
+        pattern.name(), this.players, this.npcs, this.area, this.area, this.seconds);
+
+    long[] playerPackets = new long[fakePlayers.size()];
+    for (int i = 0; i < playerPackets.length; i++) {
+      playerPackets[i] = packetSink.getPackets(fakePlayers.get(i).getPlayer());
+    }
+    Arrays.sort(playerPackets);
+    System.out.printf(Locale.ROOT,
+        "  packets per player per second: mean %.1f, p50 %.1f, p99 %.1f, max %.1f%n",
+        packetSink.getPackets() / seconds / Math.max(1, this.players),
+        percentile(playerPackets, 50) / seconds,
+        percentile(playerPackets, 99) / seconds,
+        percentile(playerPackets, 100) / seconds);
+    packetSink.getPacketsByType().forEach((type, packets) -> System.out.printf(Locale.ROOT,
+        "    %s: %.1f per second%n", type, packets / seconds));
+
+    System.out.printf(Locale.ROOT, "  shows per second: %.1f%n",
+        (metrics.getShowCount() - startShows) / seconds);
+    long hides = 0;
+    StringBuilder hideReasons = new StringBuilder();
+    for (PlayerNPCHideEvent.Reason reason : PlayerNPCHideEvent.Reason.values()) {
+      long reasonHides = metrics.getHideCount(reason) - startHides.get(reason);
+      hides += reasonHides;
+      hideReasons.append(String.format(Locale.ROOT, ", %s %.1f", reason, reasonHides / seconds));
+    }
+    System.out.printf(Locale.ROOT, "  hides per second: %.1f%s%n", hides / seconds, hideReasons);
+
+    System.out.printf(Locale.ROOT,
+        "  npc tick: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+        metrics.getTickDurationP50Millis(),
+        metrics.getTickDurationP95Millis(),
+        metrics.getTickDurationP99Millis(),
+        metrics.getTickDurationMaxMillis());
+
+    Arrays.sort(tickTimes);
+    System.out.printf(Locale.ROOT,
+        "  server tick incl. tasks: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+        millis(percentile(tickTimes, 50)),
+        millis(percentile(tickTimes, 95)),
+        millis(percentile(tickTimes, 99)),
+        millis(percentile(tickTimes, 100)));
+  }
+
+  /**
+   * The ways the synthetic players move each server tick.
+   */
+  private enum MovementPattern {
+
+    /**
+     * Every player walks in a random direction, changing the direction now and then.
+     */
+    RANDOM_WALK {
+      @Override
+      void move(
+          NPCPool pool,
+          List<FakePlayer> players,
+          World world,
+          int area,
+          Random random,
+          int tick
+      ) {
+        for (FakePlayer player : players) {
+          walk(player, area, random);
+        }
+      }
+    },
+    /**
+     * All players walk towards the center of the area and gather there.
+     */
+    CROWD {
+      @Override
+      void move(
+          NPCPool pool,
+          List<FakePlayer> players,
+          World world,
+          int area,
+          Random random,
+          int tick
+      ) {
+        double center = area / 2D;
+        for (FakePlayer player : players) {
+          Location location = player.getLocation();
+          double x = center - location.getX();
+          double z = center - location.getZ();
+          double distance = Math.sqrt(x * x + z * z);
+          if (distance > 8) {
+            player.move(x / distance * WALK_SPEED, 0, z / distance * WALK_SPEED);
+          } else {
+            // jostling in the crowd
+            walk(player, area, random);
+          }
+        }
+      }
+    },
+    /**
+     * The players walk randomly, every second a fifth of them teleports to a random location and
+     * is evaluated again by the teleport handler of the pool.
+     */
+    TELEPORT_STORM {
+      @Override
+      void move(
+          NPCPool pool,
+          List<FakePlayer> players,
+          World world,
+          int area,
+          Random random,
+          int tick
+      ) {
+        boolean storm = tick % TICKS_PER_SECOND == 0;
+        for (FakePlayer player : players) {
+          if (storm && random.nextInt(5) == 0) {
+            Location target = new Location(
+                world,
+                random.nextDouble() * area,
+                64,
+                random.nextDouble() * area);
+            // the fake server has no event system, the pool handles the teleport like on a server
+            pool.handleTeleport(new PlayerTeleportEvent(
+                player.getPlayer(),
+                player.getLocation().clone(),
+                target,
+                PlayerTeleportEvent.TeleportCause.PLUGIN));
+            player.teleport(world, target.getX(), target.getY(), target.getZ());
+          } else {
+            walk(player, area, random);
+          }
+        }
+      }
+    };
+
+    /**
+     * Lets the given player walk one tick, turning randomly and at the border of the area.
+     *
+     * @param player the player to move.
+     * @param area   the side length of the area.
+     * @param random the random to pick the direction.
+     */
+    private static void walk(FakePlayer player, int area, Random random) {
+      Location location = player.getLocation();
+      float yaw = location.getYaw();
+      if (random.nextInt(40) == 0
+          || location.getX() < 0 || location.getX() > area
+          || location.getZ() < 0 || location.getZ() > area) {
+        // a new direction, turning back into the area if needed
+        yaw = location.getX() < 0 || location.getX() > area
+            || location.getZ() < 0 || location.getZ() > area
+            ? (float) Math.toDegrees(Math.atan2(
+            location.getX() - area / 2D,
+            area / 2D - location.getZ()))
+            : random.nextFloat() * 360F;
+        location.setYaw(yaw);
+      }
+
+      double radians = Math.toRadians(yaw);
+      player.move(-Math.sin(radians) * WALK_SPEED, 0, Math.cos(radians) * WALK_SPEED);
+    }
+
+    /**
+     * Moves the players for the given server tick.
+     *
+     * @param pool    the pool handling the events of the players.
+     * @param players the players to move.
+     * @param world   the world of the players.
+     * @param area    the side length of the area.
+     * @param random  the random of the simulation.
+     * @param tick    the server tick, starting at {@code 0}.
+     */
+    abstract void move(
+        NPCPool pool,
+        List<FakePlayer> players,
+        World world,
+        int area,
+        Random random,
+        int tick
+    );
+  }
+}
@@ -0,0 +1,129 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.github.juliarn.npc.NPC;
+import com.github.juliarn.npc.NPCPool;
+import com.github.juliarn.npc.modifier.LookAtAngles;
+import com.github.juliarn.npc.modifier.RotationModifier;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of letting a npc look at a position, both the angle computation alone and
+ * including the construction and sending of the rotation packets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookAtBenchmark {
+
+  /**
+   * The amount of precomputed targets, a power of two.
+   */
+  private static final int TARGETS = 1024;
+
+  private final Location[] targets = new Location[TARGETS];
+  private final double[] differences = new double[TARGETS * 3];
+
+  private FakeServer server;
+  private NPCPool pool;
+  private NPC npc;
+  private Player viewer;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.server = FakeServer.install();
+    this.server.reset();
+    this.pool = NPCPool.builder(this.server.getPlugin()).build();
+
+    World world = this.server.getDefaultWorld();
+    Random random = new Random(42);
+    this.npc = VisibilityTickBenchmark.spawnNpcs(this.pool, world, 1, 1, random).get(0);
+    this.viewer = new FakePlayer("Viewer", this.npc.getLocation()).getPlayer();
+
+    Location npcLocation = this.npc.getLocation();
+    for (int i = 0; i < TARGETS; i++) {
+      Location target = npcLocation.clone().add(
+          (random.nextDouble() - 0.5D) * 40,
+          (random.nextDouble() - 0.5D) * 10,
+          (random.nextDouble() - 0.5D) * 40);
+      this.targets[i] = target;
+      this.differences[i * 3] = target.getX() - npcLocation.getX();
+      this.differences[i * 3 + 1] = target.getY() - npcLocation.getY();
+      this.differences[i * 3 + 2] = target.getZ() - npcLocation.getZ();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.pool.close();
+    this.server.reset();
+  }
+
+  private int nextIndex() {
+    return this.index = (this.index + 1) & (TARGETS - 1);
+  }
+
+  /**
+   * The angle computation of the npc tick, using the lookup table.
+   *
+   * @return the packed angles.
+   */
+  @Benchmark
+  public short tableAngles() {
+    int i = this.nextIndex() * 3;
+    return LookAtAngles.lookAt(
+        this.differences[i],
+        this.differences[i + 1],
+        this.differences[i + 2]);
+  }
+
+  /**
+   * The angle computation using the trigonometric functions of {@link Math}, as a reference.
+   *
+   * @return the packed angles.
+   */
+  @Benchmark
+  public short mathAngles() {
+    int i = this.nextIndex() * 3;
+    double xDifference = this.differences[i];
+    double yDifference = this.differences[i + 1];
+    double zDifference = this.differences[i + 2];
+
+    double distance = Math.sqrt(xDifference * xDifference
+        + yDifference * yDifference
+        + zDifference * zDifference);
+    float yaw = (float) (-Math.atan2(xDifference, zDifference) / Math.PI * 180D);
+    float pitch = (float) Math.toDegrees(-Math.asin(yDifference / distance));
+
+    byte yawAngle = RotationModifier.toAngle(yaw < 0 ? yaw + 360 : yaw);
+    byte pitchAngle = RotationModifier.toAngle(pitch);
+    return (short) ((yawAngle << 8) | (pitchAngle & 0xFF));
+  }
+
+  /**
+   * The full look at, including the construction and sending of the rotation packets.
+   */
+  @Benchmark
+  public void queueLookAt() {
+    this.npc.rotation().queueLookAt(this.targets[this.nextIndex()]).send(this.viewer);
+  }
+}
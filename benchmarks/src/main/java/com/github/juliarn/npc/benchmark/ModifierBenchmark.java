@@ -0,0 +1,109 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.github.juliarn.npc.NPC;
+import com.github.juliarn.npc.NPCPool;
+import com.github.juliarn.npc.modifier.AnimationModifier;
+import com.github.juliarn.npc.modifier.EquipmentModifier;
+import com.github.juliarn.npc.modifier.MetadataModifier;
+import com.github.juliarn.npc.modifier.VisibilityModifier;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of the packets of each npc modifier, sent to a single player whose
+ * packets are discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModifierBenchmark {
+
+  private FakeServer server;
+  private NPCPool pool;
+  private NPC npc;
+  private Player viewer;
+  private ItemStack helmet;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.server = FakeServer.install();
+    this.server.reset();
+    this.pool = NPCPool.builder(this.server.getPlugin()).build();
+
+    this.npc = VisibilityTickBenchmark
+        .spawnNpcs(this.pool, this.server.getDefaultWorld(), 1, 1, new Random(42))
+        .get(0);
+    this.viewer = new FakePlayer("Viewer", this.npc.getLocation()).getPlayer();
+    this.helmet = new ItemStack(Material.DIAMOND_HELMET);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.pool.close();
+    this.server.reset();
+  }
+
+  @Benchmark
+  public void visibilitySpawn() {
+    this.npc.visibility()
+        .queuePlayerListChange(VisibilityModifier.PlayerInfoAction.ADD_PLAYER)
+        .queueSpawn()
+        .send(this.viewer);
+  }
+
+  @Benchmark
+  public void visibilityDestroy() {
+    this.npc.visibility()
+        .queuePlayerListChange(VisibilityModifier.PlayerInfoAction.REMOVE_PLAYER)
+        .queueDestroy()
+        .send(this.viewer);
+  }
+
+  @Benchmark
+  public void rotation() {
+    this.npc.rotation().queueRotate(90F, 10F).send(this.viewer);
+  }
+
+  @Benchmark
+  public void movement() {
+    // moves the npc to its current location, the packets are built anyway
+    this.npc.movement().queueMovement(this.npc.getLocation()).send(this.viewer);
+  }
+
+  @Benchmark
+  public void animation() {
+    this.npc.animation()
+        .queue(AnimationModifier.EntityAnimation.SWING_MAIN_ARM)
+        .send(this.viewer);
+  }
+
+  @Benchmark
+  public void metadata() {
+    this.npc.metadata()
+        .queue(MetadataModifier.EntityMetadata.SNEAKING, true)
+        .send(this.viewer);
+  }
+
+  @Benchmark
+  public void equipment() {
+    this.npc.equipment().queue(EquipmentModifier.HEAD, this.helmet).send(this.viewer);
+  }
+}
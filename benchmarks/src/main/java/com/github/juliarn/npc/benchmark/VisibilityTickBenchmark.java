@@ -0,0 +1,150 @@
+package com.github.juliarn.npc.benchmark;
+
+import com.github.juliarn.npc.NPC;
+import com.github.juliarn.npc.NPCPool;
+import com.github.juliarn.npc.profile.Profile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single visibility tick of a npc pool for different amounts of players and npcs. The
+ * players and npcs are spread over a square area, each operation runs the server ticks needed for
+ * one npc tick including the tasks it schedules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisibilityTickBenchmark {
+
+  /**
+   * The side length of the area the players and npcs are spread over.
+   */
+  static final int AREA_SIZE = 512;
+  /**
+   * The server ticks between two npc ticks.
+   */
+  static final int NPC_TICK_PERIOD = 2;
+
+  @Param({"50", "200", "500"})
+  public int players;
+  @Param({"500", "2000", "5000"})
+  public int npcs;
+  /**
+   * If the players walk between the ticks, otherwise they stand still.
+   */
+  @Param({"false", "true"})
+  public boolean moving;
+
+  private final Random random = new Random(42);
+
+  private FakeServer server;
+  private NPCPool pool;
+  private List<FakePlayer> fakePlayers;
+
+  /**
+   * Creates the given amount of npcs at random positions in a square area.
+   *
+   * @param pool     the pool of the npcs.
+   * @param world    the world of the npcs.
+   * @param amount   the amount of npcs to create.
+   * @param areaSize the side length of the area.
+   * @param random   the random to pick the positions.
+   * @return the created npcs.
+   */
+  static List<NPC> spawnNpcs(NPCPool pool, World world, int amount, int areaSize, Random random) {
+    List<NPC> npcs = new ArrayList<>(amount);
+    for (int i = 0; i < amount; i++) {
+      Profile profile = new Profile(
+          new UUID(random.nextLong(), random.nextLong()),
+          "NPC" + i,
+          Collections.emptyList());
+      npcs.add(NPC.builder()
+          .profile(profile)
+          .location(randomLocation(world, areaSize, random))
+          .build(pool));
+    }
+    return npcs;
+  }
+
+  /**
+   * Get a random location in a square area.
+   *
+   * @param world    the world of the location.
+   * @param areaSize the side length of the area.
+   * @param random   the random to pick the position.
+   * @return the random location.
+   */
+  static Location randomLocation(World world, int areaSize, Random random) {
+    return new Location(
+        world,
+        random.nextDouble() * areaSize,
+        64,
+        random.nextDouble() * areaSize);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.server = FakeServer.install();
+    this.server.reset();
+    World world = this.server.getDefaultWorld();
+
+    // the players are online before the pool is created, the pool registers them on creation
+    this.fakePlayers = new ArrayList<>(this.players);
+    for (int i = 0; i < this.players; i++) {
+      FakePlayer player = new FakePlayer(
+          "Player" + i,
+          randomLocation(world, AREA_SIZE, this.random));
+      this.fakePlayers.add(player);
+      this.server.join(player);
+    }
+
+    this.pool = NPCPool.builder(this.server.getPlugin()).build();
+    spawnNpcs(this.pool, world, this.npcs, AREA_SIZE, this.random);
+
+    // let the pool show the npcs before measuring the steady state
+    this.server.advance(40);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.pool.close();
+    this.server.reset();
+  }
+
+  @Benchmark
+  public void tick() {
+    if (this.moving) {
+      for (FakePlayer player : this.fakePlayers) {
+        // about walking speed between two npc ticks
+        player.move(
+            (this.random.nextDouble() - 0.5D) * 0.9D,
+            0,
+            (this.random.nextDouble() - 0.5D) * 0.9D);
+      }
+    }
+
+    this.server.advance(NPC_TICK_PERIOD);
+  }
+}
@@ -0,0 +1,25 @@
+package com.github.juliarn.npc;
+
+import com.github.juliarn.npc.event.PlayerNPCInteractEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A handler for interactions of players with npcs which is called directly on the thread the
+ * interaction packet was received on, before the {@link PlayerNPCInteractEvent} is called on the
+ * main thread. Only thread safe APIs may be used in the handler, and it should return quickly as
+ * it blocks the connection of the player.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+@FunctionalInterface
+public interface AsyncInteractionHandler {
+
+  /**
+   * Being called when a player interacted with a npc. Repeated interactions with the same action
+   * in one tick and interactions dropped by the rate limit of the pool are not passed to the
+   * handler.
+   *
+   * @param context the context of the interaction.
+   */
+  void handleInteraction(@NotNull InteractionContext context);
+}
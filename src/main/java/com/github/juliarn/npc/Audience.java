@@ -0,0 +1,95 @@
+package com.github.juliarn.npc;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Factories for the common audiences of a npc, which can be combined using the methods of {@link
+ * Predicate}. The result of an audience is cached per player and npc, audiences depending on
+ * state which changes need to be invalidated using {@link NPC#invalidateAudience()} or {@link
+ * NPC#invalidateAudience(Player)}. Audiences are only evaluated on the main thread and may
+ * therefore use the api of Bukkit, like checking the permissions of a player.
+ *
+ * @see NPC#setAudience(Predicate)
+ * @since 2.8.1-SNAPSHOT
+ */
+public final class Audience {
+
+  private Audience() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * An audience of only the players with the given unique ids.
+   *
+   * @param uniqueIds the unique ids of the players in the audience.
+   * @return an audience of the given players.
+   */
+  @NotNull
+  public static Predicate<Player> whitelist(@NotNull UUID... uniqueIds) {
+    return whitelist(Arrays.asList(uniqueIds));
+  }
+
+  /**
+   * An audience of only the players with the given unique ids. The unique ids are copied, later
+   * changes to the given collection have no effect.
+   *
+   * @param uniqueIds the unique ids of the players in the audience.
+   * @return an audience of the given players.
+   */
+  @NotNull
+  public static Predicate<Player> whitelist(@NotNull Collection<UUID> uniqueIds) {
+    Set<UUID> whitelist = copy(uniqueIds);
+    return player -> whitelist.contains(player.getUniqueId());
+  }
+
+  /**
+   * An audience of all players except the players with the given unique ids.
+   *
+   * @param uniqueIds the unique ids of the players not in the audience.
+   * @return an audience of all players except the given players.
+   */
+  @NotNull
+  public static Predicate<Player> blacklist(@NotNull UUID... uniqueIds) {
+    return blacklist(Arrays.asList(uniqueIds));
+  }
+
+  /**
+   * An audience of all players except the players with the given unique ids. The unique ids are
+   * copied, later changes to the given collection have no effect.
+   *
+   * @param uniqueIds the unique ids of the players not in the audience.
+   * @return an audience of all players except the given players.
+   */
+  @NotNull
+  public static Predicate<Player> blacklist(@NotNull Collection<UUID> uniqueIds) {
+    Set<UUID> blacklist = copy(uniqueIds);
+    return player -> !blacklist.contains(player.getUniqueId());
+  }
+
+  /**
+   * An audience of the players with the given permission. Changes of the permissions of a player
+   * are only picked up after invalidating the audience for the player.
+   *
+   * @param permission the permission the players need.
+   * @return an audience of the players with the given permission.
+   */
+  @NotNull
+  public static Predicate<Player> permission(@NotNull String permission) {
+    Preconditions.checkNotNull(permission, "permission");
+    return player -> player.hasPermission(permission);
+  }
+
+  @NotNull
+  private static Set<UUID> copy(@NotNull Collection<UUID> uniqueIds) {
+    return Collections.unmodifiableSet(new HashSet<>(uniqueIds));
+  }
+}
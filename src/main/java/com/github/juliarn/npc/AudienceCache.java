@@ -0,0 +1,147 @@
+package com.github.juliarn.npc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Caches if the players are in the audience of a npc, by their player index. Each entry holds the
+ * cached result, the epoch it was evaluated in and the amount of invalidations of the single
+ * entry, so that a result evaluated while the entry or all entries were invalidated is never
+ * cached.
+ */
+final class AudienceCache {
+
+  private static final long CACHED = 1L;
+  private static final long MEMBER = 1L << 1;
+  private static final int INVALIDATIONS_SHIFT = 2;
+  private static final long INVALIDATIONS_MASK = 0x3FFFFFFFL;
+  private static final int EPOCH_SHIFT = 32;
+
+  private final Object lock = new Object();
+
+  /**
+   * The entries by player index. Only replaced by a larger copy while holding the lock.
+   */
+  private volatile AtomicLongArray entries = new AtomicLongArray(0);
+  /**
+   * Changed to invalidate all entries at once.
+   */
+  private volatile int epoch;
+
+  /**
+   * Get if the given player is in the audience, using the cached result if valid.
+   *
+   * @param player    the player to check.
+   * @param index     the player index of the player, {@code -1} to not use the cache.
+   * @param capacity  the capacity of the player index registry.
+   * @param evaluator evaluates if the player is in the audience.
+   * @return if the player is in the audience.
+   */
+  boolean isMember(
+      @NotNull Player player,
+      int index,
+      int capacity,
+      @NotNull Predicate<Player> evaluator
+  ) {
+    if (index < 0) {
+      return evaluator.test(player);
+    }
+
+    AtomicLongArray entries = this.entries;
+    if (index >= entries.length()) {
+      entries = this.grow(Math.max(index + 1, capacity));
+    }
+
+    int epoch = this.epoch;
+    long entry = entries.get(index);
+    if ((entry & CACHED) != 0 && (int) (entry >>> EPOCH_SHIFT) == epoch) {
+      return (entry & MEMBER) != 0;
+    }
+
+    boolean member = evaluator.test(player);
+    long invalidations = entry & (INVALIDATIONS_MASK << INVALIDATIONS_SHIFT);
+    long evaluated = ((long) epoch << EPOCH_SHIFT) | invalidations | (member ? MEMBER : 0) | CACHED;
+    // fails if the entry was invalidated in the meantime, the result is then not cached
+    entries.compareAndSet(index, entry, evaluated);
+    return member;
+  }
+
+  /**
+   * Get the cached result of the player with the given index, without evaluating it.
+   *
+   * @param index the player index of the player.
+   * @return if the player is in the audience, null if no valid result is cached.
+   */
+  @Nullable
+  Boolean getCached(int index) {
+    AtomicLongArray entries = this.entries;
+    if (index < 0 || index >= entries.length()) {
+      return null;
+    }
+
+    long entry = entries.get(index);
+    if ((entry & CACHED) != 0 && (int) (entry >>> EPOCH_SHIFT) == this.epoch) {
+      return (entry & MEMBER) != 0;
+    }
+    return null;
+  }
+
+  /**
+   * Invalidates the cached result of the player with the given index.
+   *
+   * @param index the player index of the player.
+   */
+  void invalidate(int index) {
+    if (index < 0) {
+      return;
+    }
+
+    // prevents the invalidation from being lost in a copy made at the same time
+    synchronized (this.lock) {
+      AtomicLongArray entries = this.entries;
+      if (index < entries.length()) {
+        long entry;
+        long invalidated;
+        do {
+          entry = entries.get(index);
+          long invalidations = ((entry >>> INVALIDATIONS_SHIFT) + 1) & INVALIDATIONS_MASK;
+          invalidated = invalidations << INVALIDATIONS_SHIFT;
+        } while (!entries.compareAndSet(index, entry, invalidated));
+      }
+    }
+  }
+
+  /**
+   * Invalidates the cached results of all players.
+   */
+  void invalidateAll() {
+    synchronized (this.lock) {
+      this.epoch++;
+    }
+  }
+
+  /**
+   * Replaces the entries by a copy of the given size, unless they were already grown.
+   *
+   * @param size the size of the new entries.
+   * @return the entries with at least the given size.
+   */
+  @NotNull
+  private AtomicLongArray grow(int size) {
+    synchronized (this.lock) {
+      AtomicLongArray entries = this.entries;
+      if (size <= entries.length()) {
+        return entries;
+      }
+
+      AtomicLongArray grown = new AtomicLongArray(size);
+      for (int i = 0; i < entries.length(); i++) {
+        grown.set(i, entries.get(i));
+      }
+      return this.entries = grown;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.github.juliarn.npc;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects the audiences which need to be evaluated for players while the npc tick runs off the
+ * main thread and evaluates them in a single task on the main thread per tick. Audiences usually
+ * use the api of Bukkit, for example to check the permissions of a player, which must not be
+ * called from other threads. After the evaluation the players are evaluated again by the next npc
+ * tick, which then uses the cached results.
+ */
+final class AudienceEvaluationQueue {
+
+  private final Plugin plugin;
+  private final NPCPool pool;
+
+  /**
+   * The npcs whose audience needs to be evaluated by the player.
+   */
+  private final Map<Player, Set<NPC>> pending = new ConcurrentHashMap<>();
+  /**
+   * If a task draining the pending evaluations is scheduled.
+   */
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  AudienceEvaluationQueue(@NotNull Plugin plugin, @NotNull NPCPool pool) {
+    this.plugin = plugin;
+    this.pool = pool;
+  }
+
+  /**
+   * Queues the evaluation of the audience of the given npc for the given player. Can be called
+   * from any thread.
+   *
+   * @param npc    the npc whose audience needs to be evaluated.
+   * @param player the player to evaluate the audience for.
+   */
+  void queue(@NotNull NPC npc, @NotNull Player player) {
+    this.pending.compute(player, ($, npcs) -> {
+      if (npcs == null) {
+        npcs = ConcurrentHashMap.newKeySet();
+      }
+      npcs.add(npc);
+      return npcs;
+    });
+
+    if (this.drainScheduled.compareAndSet(false, true)) {
+      Bukkit.getScheduler().runTask(this.plugin, this::drain);
+    }
+  }
+
+  /**
+   * Evaluates all pending audiences. Must be called on the main thread.
+   */
+  private void drain() {
+    // evaluations queued from now on need another drain
+    this.drainScheduled.set(false);
+
+    for (Player player : this.pending.keySet()) {
+      Set<NPC> npcs = this.pending.remove(player);
+      if (npcs == null || !player.isOnline()) {
+        continue;
+      }
+
+      for (NPC npc : npcs) {
+        // caches the result, as this is the main thread
+        npc.isInAudience(player);
+      }
+      this.pool.invalidatePlayer(player);
+    }
+  }
+}
@@ -0,0 +1,286 @@
+package com.github.juliarn.npc;
+
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.google.common.base.Preconditions;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Allocates the entity ids of the npcs of all pools. The ids are handed out sequentially from
+ * blocks reserved from the entity counter of the server, so they never collide with the ids of
+ * real entities or the npcs of another pool. If the counter of the server is not accessible or a
+ * range was configured using {@link #useRange(int, int)}, the blocks are taken from that range
+ * instead. The counter of older versions is only changed by the server on the main thread, when a
+ * block has to be reserved on another thread the range is used from then on. Freed ids are reused
+ * after a quarantine period, which gives the clients time to process the destruction of the
+ * previous entity.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public final class EntityIdAllocator {
+
+  /**
+   * The amount of ids reserved at once.
+   */
+  private static final int BLOCK_SIZE = 1024;
+  /**
+   * The time a freed id is not handed out again.
+   */
+  private static final long QUARANTINE = TimeUnit.SECONDS.toNanos(30);
+  /**
+   * The first id of the range used when the entity counter of the server is not accessible, high
+   * enough to never be reached by the server.
+   */
+  private static final int DEFAULT_RANGE_START = 1 << 30;
+  /**
+   * The names of the entity counter field in the versions not obfuscating it.
+   */
+  private static final String[] COUNTER_NAMES = {"entityCount", "ENTITY_COUNTER"};
+
+  private static final EntityIdAllocator SHARED = new EntityIdAllocator();
+
+  /**
+   * The freed ids in the order they were freed.
+   */
+  private final Queue<FreedId> freedIds = new ConcurrentLinkedQueue<>();
+  /**
+   * The current block, holding its end (exclusive) in the upper and its next id in the lower 32
+   * bits. Both are changed together, so that an id is only taken from the block it belongs to.
+   */
+  private final AtomicLong block = new AtomicLong();
+
+  /**
+   * The entity counter of the server, {@code null} if it was not looked up yet or can't be found.
+   */
+  private Field entityCounter;
+  /**
+   * If the entity counter of the server was looked up already.
+   */
+  private boolean entityCounterResolved;
+  /**
+   * The first id of the configured range, {@code 0} to reserve the blocks from the server.
+   */
+  private int rangeStart;
+  /**
+   * The end of the configured range, exclusive.
+   */
+  private int rangeEnd;
+  /**
+   * The start of the next block of the configured range.
+   */
+  private int rangeNext;
+  /**
+   * If at least one block was reserved, after which the range can no longer be changed.
+   */
+  private boolean reserved;
+
+  private EntityIdAllocator() {
+  }
+
+  /**
+   * Get the allocator shared by all npc pools.
+   *
+   * @return the shared entity id allocator.
+   */
+  @NotNull
+  public static EntityIdAllocator shared() {
+    return SHARED;
+  }
+
+  /**
+   * Configures the shared allocator to take the ids from the given range instead of reserving them
+   * from the entity counter of the server. Must be called before the first npc is created.
+   *
+   * @param first the first id of the range, inclusive.
+   * @param last  the last id of the range, inclusive.
+   * @throws IllegalStateException if an id was already allocated.
+   */
+  public static void useRange(int first, int last) {
+    Preconditions.checkArgument(first > 0, "First id must be more than 0");
+    Preconditions.checkArgument(last - first >= BLOCK_SIZE - 1,
+        "Range must contain at least " + BLOCK_SIZE + " ids");
+
+    synchronized (SHARED) {
+      Preconditions.checkState(!SHARED.reserved, "Ids were already allocated");
+      SHARED.rangeStart = first;
+      SHARED.rangeEnd = last == Integer.MAX_VALUE ? Integer.MAX_VALUE : last + 1;
+      SHARED.rangeNext = first;
+    }
+  }
+
+  /**
+   * Finds the entity counter of the server. Older versions use a static int field named {@code
+   * entityCount}, newer versions a static {@link AtomicInteger} which is matched by its name, or
+   * by being the only static {@link AtomicInteger} of the entity class if its name is obfuscated.
+   *
+   * @return the field holding the entity counter, {@code null} if it can't be found.
+   */
+  @Nullable
+  private static Field findEntityCounter() {
+    try {
+      Field unnamedCounter = null;
+      int unnamedCounters = 0;
+      for (Field field : MinecraftReflection.getEntityClass().getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+
+        boolean named = Arrays.asList(COUNTER_NAMES).contains(field.getName());
+        if (named && (field.getType() == AtomicInteger.class || field.getType() == int.class)) {
+          field.setAccessible(true);
+          return field;
+        } else if (field.getType() == AtomicInteger.class) {
+          unnamedCounter = field;
+          unnamedCounters++;
+        }
+      }
+
+      // an obfuscated counter is only trusted if there is no other candidate
+      if (unnamedCounters == 1) {
+        unnamedCounter.setAccessible(true);
+        return unnamedCounter;
+      }
+    } catch (RuntimeException exception) {
+      Bukkit.getLogger().log(Level.WARNING, "Unable to access the entity counter of the server",
+          exception);
+    }
+
+    Bukkit.getLogger().warning("Unable to find the entity counter of the server, the npc entity"
+        + " ids are taken from a range starting at " + DEFAULT_RANGE_START);
+    return null;
+  }
+
+  /**
+   * Allocates an entity id which is not used by any other entity.
+   *
+   * @return the allocated id.
+   */
+  public int allocate() {
+    FreedId freedId = this.freedIds.peek();
+    if (freedId != null
+        && System.nanoTime() - freedId.freedAt >= QUARANTINE
+        && this.freedIds.remove(freedId)) {
+      return freedId.id;
+    }
+
+    while (true) {
+      long block = this.block.get();
+      int id = (int) block;
+      if (id > 0 && id < (int) (block >>> 32)) {
+        // the next id stays below the end, it never carries over into the upper bits
+        if (this.block.compareAndSet(block, block + 1)) {
+          return id;
+        }
+      } else {
+        this.reserveBlock(block);
+      }
+    }
+  }
+
+  /**
+   * Frees the given entity id, it's handed out again after the quarantine period.
+   *
+   * @param id the id to free.
+   */
+  public void free(int id) {
+    this.freedIds.add(new FreedId(id, System.nanoTime()));
+  }
+
+  /**
+   * Reserves a new block of ids, unless another thread already replaced the exhausted block.
+   *
+   * @param exhaustedBlock the block which is exhausted.
+   */
+  private synchronized void reserveBlock(long exhaustedBlock) {
+    if (this.block.get() != exhaustedBlock) {
+      return;
+    }
+
+    int start = this.rangeStart == 0 ? this.reserveFromServer() : 0;
+    if (start <= 0) {
+      start = this.reserveFromRange();
+    }
+
+    this.reserved = true;
+    // an exhausted block is never changed by allocations, all ids of the old block were taken
+    this.block.set(((long) (start + BLOCK_SIZE) << 32) | start);
+  }
+
+  /**
+   * Reserves a block from the entity counter of the server.
+   *
+   * @return the first id of the reserved block, {@code 0} if the counter is not accessible or can
+   *         only be changed on the main thread.
+   */
+  private int reserveFromServer() {
+    if (!this.entityCounterResolved) {
+      this.entityCounter = findEntityCounter();
+      this.entityCounterResolved = true;
+    }
+
+    Field counter = this.entityCounter;
+    if (counter == null) {
+      return 0;
+    }
+
+    try {
+      if (counter.getType() == AtomicInteger.class) {
+        return ((AtomicInteger) counter.get(null)).getAndAdd(BLOCK_SIZE);
+      }
+
+      // the counter is not thread safe on older versions, the server updates it on the main thread
+      if (!Bukkit.isPrimaryThread()) {
+        return 0;
+      }
+      int start = counter.getInt(null);
+      counter.setInt(null, start + BLOCK_SIZE);
+      return start;
+    } catch (IllegalAccessException exception) {
+      return 0;
+    }
+  }
+
+  /**
+   * Reserves a block from the configured range, or the default range if none was configured.
+   *
+   * @return the first id of the reserved block.
+   * @throws IllegalStateException if the range is exhausted.
+   */
+  private int reserveFromRange() {
+    if (this.rangeStart == 0) {
+      this.rangeStart = DEFAULT_RANGE_START;
+      this.rangeEnd = Integer.MAX_VALUE;
+      this.rangeNext = DEFAULT_RANGE_START;
+    }
+
+    Preconditions.checkState(this.rangeEnd - this.rangeNext >= BLOCK_SIZE,
+        "No more entity ids left in the configured range");
+    int start = this.rangeNext;
+    this.rangeNext += BLOCK_SIZE;
+    return start;
+  }
+
+  /**
+   * An id which was freed and the {@link System#nanoTime()} it was freed at.
+   */
+  private static final class FreedId {
+
+    private final int id;
+    private final long freedAt;
+
+    private FreedId(int id, long freedAt) {
+      this.id = id;
+      this.freedAt = freedAt;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.github.juliarn.npc;
+
+import com.github.juliarn.npc.event.PlayerNPCInteractEvent;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The immutable context of an interaction of a player with a npc passed to an {@link
+ * AsyncInteractionHandler}.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public final class InteractionContext {
+
+  private final Player player;
+  private final NPC npc;
+  private final PlayerNPCInteractEvent.EntityUseAction action;
+  private final PlayerNPCInteractEvent.Hand hand;
+
+  /**
+   * Constructs a new interaction context.
+   *
+   * @param player the player who interacted with the npc.
+   * @param npc    the npc the player interacted with.
+   * @param action the action of the interaction.
+   * @param hand   the hand used for the interaction.
+   */
+  InteractionContext(
+      @NotNull Player player,
+      @NotNull NPC npc,
+      @NotNull PlayerNPCInteractEvent.EntityUseAction action,
+      @NotNull PlayerNPCInteractEvent.Hand hand
+  ) {
+    this.player = player;
+    this.npc = npc;
+    this.action = action;
+    this.hand = hand;
+  }
+
+  /**
+   * Get the player who interacted with the npc.
+   *
+   * @return the player who interacted with the npc.
+   */
+  @NotNull
+  public Player getPlayer() {
+    return this.player;
+  }
+
+  /**
+   * Get the npc the player interacted with.
+   *
+   * @return the npc the player interacted with.
+   */
+  @NotNull
+  public NPC getNpc() {
+    return this.npc;
+  }
+
+  /**
+   * Get the action of the interaction.
+   *
+   * @return the action of the interaction.
+   */
+  @NotNull
+  public PlayerNPCInteractEvent.EntityUseAction getUseAction() {
+    return this.action;
+  }
+
+  /**
+   * Get the hand the player used for the interaction.
+   *
+   * @return the hand the player used for the interaction.
+   */
+  @NotNull
+  public PlayerNPCInteractEvent.Hand getHand() {
+    return this.hand;
+  }
+}
@@ -0,0 +1,211 @@
+package com.github.juliarn.npc;
+
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.github.juliarn.npc.event.PlayerNPCInteractEvent;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects the interactions of players with npcs received on the packet threads and calls the
+ * {@link PlayerNPCInteractEvent}s for them in a single task on the main thread per tick. The
+ * packets a client sends for the same action with the same npc in one tick, for example for both
+ * hands, are reduced to one interaction, and each player is limited to a configurable amount of
+ * interactions with different npcs per second.
+ */
+final class InteractionQueue {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final Plugin plugin;
+  /**
+   * The maximum amount of interactions per player and second, {@code 0} for no limit.
+   */
+  private final int rateLimit;
+
+  /**
+   * The interactions received since the last drain by the player and npc.
+   */
+  private final Map<Key, Interactions> pending = new ConcurrentHashMap<>();
+  /**
+   * The rate limits of the players which interacted with a npc.
+   */
+  private final Map<UUID, RateLimit> rateLimits = new ConcurrentHashMap<>();
+  /**
+   * If a task draining the pending interactions is scheduled.
+   */
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  InteractionQueue(@NotNull Plugin plugin, int rateLimit) {
+    this.plugin = plugin;
+    this.rateLimit = rateLimit;
+  }
+
+  /**
+   * Queues an interaction of the given player with the given npc. Can be called from any thread.
+   *
+   * @param player the player who interacted with the npc.
+   * @param npc    the npc the player interacted with.
+   * @param action the action of the interaction.
+   * @param hand   the hand used for the interaction.
+   * @return true if the interaction was queued, false if it was dropped as a duplicate or because
+   * of the rate limit.
+   */
+  boolean add(
+      @NotNull Player player,
+      @NotNull NPC npc,
+      @NotNull EnumWrappers.EntityUseAction action,
+      @NotNull EnumWrappers.Hand hand
+  ) {
+    Key key = new Key(player.getUniqueId(), npc.getEntityId());
+    boolean[] added = new boolean[1];
+    this.pending.compute(key, ($, queued) -> {
+      if (queued == null) {
+        // only the first interaction with a npc per drain counts towards the rate limit
+        if (this.rateLimit > 0 && !this.rateLimits
+            .computeIfAbsent(key.playerId, playerId -> new RateLimit(this.rateLimit))
+            .tryAcquire(this.rateLimit)) {
+          return null;
+        }
+        queued = new Interactions(player, npc);
+      }
+      added[0] = queued.add(action, hand);
+      return queued;
+    });
+
+    if (added[0] && this.drainScheduled.compareAndSet(false, true)) {
+      Bukkit.getScheduler().runTask(this.plugin, this::drain);
+    }
+    return added[0];
+  }
+
+  /**
+   * Removes the rate limit of the given player, for example because the player quit.
+   *
+   * @param player the player to remove.
+   */
+  void removePlayer(@NotNull Player player) {
+    this.rateLimits.remove(player.getUniqueId());
+  }
+
+  /**
+   * Calls the events for all pending interactions. Must be called on the main thread.
+   */
+  private void drain() {
+    // interactions received from now on need another drain
+    this.drainScheduled.set(false);
+
+    for (Key key : this.pending.keySet()) {
+      Interactions interactions = this.pending.remove(key);
+      if (interactions != null && interactions.player.isOnline()) {
+        interactions.callEvents();
+      }
+    }
+  }
+
+  /**
+   * The key of the interactions of a player with a npc.
+   */
+  private static final class Key {
+
+    private final UUID playerId;
+    private final int entityId;
+
+    private Key(UUID playerId, int entityId) {
+      this.playerId = playerId;
+      this.entityId = entityId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return this.entityId == key.entityId && this.playerId.equals(key.playerId);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.playerId.hashCode() + this.entityId;
+    }
+  }
+
+  /**
+   * The pending interactions of a player with a npc, at most one per action in the order they
+   * were received. Only modified while holding the entry in the pending map.
+   */
+  private static final class Interactions {
+
+    private static final EnumWrappers.EntityUseAction[] ACTIONS =
+        EnumWrappers.EntityUseAction.values();
+
+    private final Player player;
+    private final NPC npc;
+    private final EnumWrappers.EntityUseAction[] actions =
+        new EnumWrappers.EntityUseAction[ACTIONS.length];
+    private final EnumWrappers.Hand[] hands = new EnumWrappers.Hand[ACTIONS.length];
+    private int size;
+
+    private Interactions(Player player, NPC npc) {
+      this.player = player;
+      this.npc = npc;
+    }
+
+    private boolean add(EnumWrappers.EntityUseAction action, EnumWrappers.Hand hand) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.actions[i] == action) {
+          return false;
+        }
+      }
+      this.actions[this.size] = action;
+      this.hands[this.size++] = hand;
+      return true;
+    }
+
+    private void callEvents() {
+      for (int i = 0; i < this.size; i++) {
+        Bukkit.getPluginManager().callEvent(new PlayerNPCInteractEvent(
+            this.player,
+            this.npc,
+            this.actions[i],
+            this.hands[i]));
+      }
+    }
+  }
+
+  /**
+   * A token bucket holding up to one second of interactions of a player.
+   */
+  private static final class RateLimit {
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private RateLimit(int rateLimit) {
+      this.tokens = rateLimit;
+    }
+
+    private synchronized boolean tryAcquire(int rateLimit) {
+      long now = System.nanoTime();
+      this.tokens = Math.min(rateLimit,
+          this.tokens + (now - this.lastRefill) * rateLimit / (double) SECOND);
+      this.lastRefill = now;
+
+      if (this.tokens < 1) {
+        return false;
+      }
+      this.tokens--;
+      return true;
+    }
+  }
+}
@@ -3,25 +3,33 @@
 import com.comphenix.protocol.wrappers.EnumWrappers.PlayerInfoAction;
 import com.comphenix.protocol.wrappers.WrappedGameProfile;
 import com.github.juliarn.npc.event.PlayerNPCHideEvent;
-import com.github.juliarn.npc.event.PlayerNPCShowEvent;
 import com.github.juliarn.npc.modifier.AnimationModifier;
 import com.github.juliarn.npc.modifier.EquipmentModifier;
 import com.github.juliarn.npc.modifier.LabyModModifier;
+import com.github.juliarn.npc.modifier.LookAtAngles;
 import com.github.juliarn.npc.modifier.MetadataModifier;
 import com.github.juliarn.npc.modifier.MovementModifier;
+import com.github.juliarn.npc.modifier.PacketTemplates;
 import com.github.juliarn.npc.modifier.RotationModifier;
 import com.github.juliarn.npc.modifier.VisibilityModifier;
 import com.github.juliarn.npc.profile.Profile;
 import com.github.juliarn.npc.profile.ProfileUtils;
 import com.google.common.base.Preconditions;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,9 +40,27 @@
  */
 public class NPC {
 
-  private final Collection<Player> seeingPlayers = new CopyOnWriteArraySet<>();
-  private final Collection<Player> excludedPlayers = new CopyOnWriteArraySet<>();
+  private final Collection<Player> seeingPlayers = ConcurrentHashMap.newKeySet();
+  private final Collection<Player> excludedPlayers = ConcurrentHashMap.newKeySet();
+  /**
+   * The spawns scheduled after showing this npc which were not sent yet, by the player.
+   */
+  private final Map<Player, PendingSpawn> pendingSpawns = new ConcurrentHashMap<>();
+  /**
+   * The look at rotations last sent to the players by their player index, each packed with the
+   * epoch it was sent in. Only replaced by a larger copy while holding the lock.
+   */
+  private volatile AtomicLongArray lookAtRotations = new AtomicLongArray(0);
+  /**
+   * Changed whenever the rotation of this npc is changed for all players, which invalidates all
+   * remembered look at rotations at once.
+   */
+  private final AtomicInteger lookAtRotationEpoch = new AtomicInteger();
+  private final Object lookAtRotationsLock = new Object();
+  private final Collection<AsyncInteractionHandler> asyncInteractionHandlers =
+      new CopyOnWriteArrayList<>();
 
+  private final NPCPool pool;
   private final int entityId;
   private final boolean usePlayerProfiles;
 
@@ -45,10 +71,15 @@ public class NPC {
 
   private boolean lookAtPlayer;
   private boolean imitatePlayer;
+  private volatile double priority;
+  private volatile Predicate<Player> audience;
+  private final AudienceCache audienceCache = new AudienceCache();
+  private final PacketTemplates packetTemplates = new PacketTemplates();
 
   /**
    * Creates a new npc instance.
    *
+   * @param pool              The pool which handles the npc.
    * @param profile           The profile of the npc.
    * @param spawnCustomizer   The spawn customizer of the npc.
    * @param location          The location of the npc.
@@ -56,16 +87,22 @@ public class NPC {
    * @param lookAtPlayer      If the npc should always look in the direction of the player.
    * @param imitatePlayer     If the npc should imitate the player.
    * @param usePlayerProfiles If the npc should use the profile of the player being spawned to.
+   * @param priority          The priority of the npc when the visible npcs are limited.
+   * @param audience          The players which can see the npc, null for all players.
    */
   private NPC(
+      @NotNull NPCPool pool,
       @Nullable Profile profile,
       @NotNull Location location,
       @NotNull SpawnCustomizer spawnCustomizer,
       int entityId,
       boolean lookAtPlayer,
       boolean imitatePlayer,
-      boolean usePlayerProfiles
+      boolean usePlayerProfiles,
+      double priority,
+      @Nullable Predicate<Player> audience
   ) {
+    this.pool = pool;
     this.entityId = entityId;
 
     this.location = location;
@@ -74,6 +111,8 @@ private NPC(
     this.lookAtPlayer = lookAtPlayer;
     this.imitatePlayer = imitatePlayer;
     this.usePlayerProfiles = usePlayerProfiles;
+    this.priority = priority;
+    this.audience = audience;
 
     // no profile -> create a random one
     if (profile == null) {
@@ -114,13 +153,51 @@ public static NPC.Builder builder() {
    *                           removed from the player list.
    */
   protected void show(@NotNull Player player, @NotNull Plugin plugin, long tabListRemoveTicks) {
+    this.show(player, plugin, tabListRemoveTicks, this.pool.getPlayerState(player));
+  }
+
+  /**
+   * Shows this npc to a player whose tick state is already known.
+   *
+   * @param player             The player to show this npc to.
+   * @param plugin             The plugin requesting the change.
+   * @param tabListRemoveTicks The ticks before removing the player from the player list after
+   *                           spawning. A negative value indicates that this npc shouldn't get
+   *                           removed from the player list.
+   * @param state              The tick state of the player, null if the player is not online.
+   */
+  void show(
+      @NotNull Player player,
+      @NotNull Plugin plugin,
+      long tabListRemoveTicks,
+      @Nullable PlayerTickState state
+  ) {
     this.seeingPlayers.add(player);
+    // the player might have quit since the npc was chosen to be shown
+    if (!this.pool.handleShow(this, player, state)) {
+      this.seeingPlayers.remove(player);
+      return;
+    }
+    int playerIndex = state.getPlayerIndex();
+    this.pool.getMetrics().recordShow();
 
     VisibilityModifier modifier = new VisibilityModifier(this);
     modifier.queuePlayerListChange(PlayerInfoAction.ADD_PLAYER).send(player);
 
-    Bukkit.getScheduler().runTaskLater(plugin, () -> {
+    PendingSpawn spawn = new PendingSpawn();
+    // a spawn of an earlier show is replaced, the npc is spawned once
+    this.cancelPendingSpawn(this.pendingSpawns.put(player, spawn));
+    this.pool.getMetrics().recordPendingSpawn(true);
+    spawn.task = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+      // the npc was hidden or shown again in the meantime
+      if (!this.pendingSpawns.remove(player, spawn)) {
+        return;
+      }
+
+      this.pool.getMetrics().recordPendingSpawn(false);
       modifier.queueSpawn().send(player);
+      // the spawn packet contains the rotation of the npc location
+      this.forgetLookAtRotation(playerIndex);
       this.spawnCustomizer.handleSpawn(this, player);
 
       if (tabListRemoveTicks >= 0) {
@@ -131,7 +208,7 @@ protected void show(@NotNull Player player, @NotNull Plugin plugin, long tabList
             tabListRemoveTicks);
       }
 
-      Bukkit.getPluginManager().callEvent(new PlayerNPCShowEvent(player, this));
+      this.pool.getVisibilityEvents().shown(player, this);
     }, 10L);
   }
 
@@ -146,16 +223,31 @@ protected void hide(
       @NotNull Player player,
       @NotNull Plugin plugin,
       @NotNull PlayerNPCHideEvent.Reason reason
+  ) {
+    this.hide(player, plugin, reason, this.pool.getPlayerIndices().getIndex(player));
+  }
+
+  /**
+   * Hides this npc from a player whose player index is already known.
+   *
+   * @param player      The player to hide the npc for.
+   * @param plugin      The plugin requesting the change.
+   * @param reason      The reason why the npc was hidden for the player.
+   * @param playerIndex The player index of the player.
+   */
+  void hide(
+      @NotNull Player player,
+      @NotNull Plugin plugin,
+      @NotNull PlayerNPCHideEvent.Reason reason,
+      int playerIndex
   ) {
     this.visibility()
         .queuePlayerListChange(PlayerInfoAction.REMOVE_PLAYER)
         .queueDestroy()
         .send(player);
-    this.removeSeeingPlayer(player);
-
-    Bukkit.getScheduler().runTask(
-        plugin,
-        () -> Bukkit.getPluginManager().callEvent(new PlayerNPCHideEvent(player, this, reason)));
+    this.removeSeeingPlayer(player, playerIndex);
+    this.pool.getMetrics().recordHide(reason);
+    this.pool.getVisibilityEvents().hidden(player, this, reason);
   }
 
   /**
@@ -164,7 +256,110 @@ protected void hide(
    * @param player The player to remove.
    */
   protected void removeSeeingPlayer(@NotNull Player player) {
+    this.removeSeeingPlayer(player, this.pool.getPlayerIndices().getIndex(player));
+  }
+
+  /**
+   * Removes this player, whose player index is already known, from the players that can see the
+   * npc.
+   *
+   * @param player      The player to remove.
+   * @param playerIndex The player index of the player.
+   */
+  private void removeSeeingPlayer(@NotNull Player player, int playerIndex) {
     this.seeingPlayers.remove(player);
+    this.cancelPendingSpawn(this.pendingSpawns.remove(player));
+    this.forgetLookAtRotation(playerIndex);
+    this.pool.handleHide(this, player);
+  }
+
+  /**
+   * Cancels the given spawn which was removed from the pending spawns.
+   *
+   * @param spawn the spawn to cancel, null if there is none.
+   */
+  private void cancelPendingSpawn(@Nullable PendingSpawn spawn) {
+    if (spawn != null) {
+      this.pool.getMetrics().recordPendingSpawn(false);
+      // the task does nothing if it runs anyway, the spawn is no longer pending
+      BukkitTask task = spawn.task;
+      if (task != null) {
+        task.cancel();
+      }
+    }
+  }
+
+  /**
+   * Remembers the rotation this npc has when looking at the player with the given index.
+   *
+   * @param index  the player index of the player the npc looks at.
+   * @param angles the packed angles of the rotation, as computed by {@link LookAtAngles}.
+   * @return if the rotation differs from the last rotation sent to the player.
+   */
+  boolean updateLookAtRotation(int index, short angles) {
+    if (index < 0) {
+      return true;
+    }
+
+    AtomicLongArray rotations = this.lookAtRotations;
+    if (index >= rotations.length()) {
+      rotations = this.growLookAtRotations(index);
+    }
+    // the bit above the angles marks the entry as set, an entry of 0 is no rotation
+    long entry = ((long) this.lookAtRotationEpoch.get() << 32) | 0x10000L | (angles & 0xFFFFL);
+    return rotations.getAndSet(index, entry) != entry;
+  }
+
+  /**
+   * Forgets the rotation sent to the player with the given index, so that the npc tick sends the
+   * look at rotation again.
+   *
+   * @param index the player index of the player to forget the rotation of.
+   */
+  private void forgetLookAtRotation(int index) {
+    if (index >= 0) {
+      // prevents the reset from being lost in a copy made at the same time
+      synchronized (this.lookAtRotationsLock) {
+        AtomicLongArray rotations = this.lookAtRotations;
+        if (index < rotations.length()) {
+          rotations.set(index, 0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces the look at rotations by a copy large enough to hold the given player index.
+   *
+   * @param index the player index which must fit into the rotations.
+   * @return the rotations holding the player index.
+   */
+  @NotNull
+  private AtomicLongArray growLookAtRotations(int index) {
+    synchronized (this.lookAtRotationsLock) {
+      AtomicLongArray rotations = this.lookAtRotations;
+      if (index < rotations.length()) {
+        return rotations;
+      }
+
+      AtomicLongArray grown = new AtomicLongArray(Math.max(
+          index + 1,
+          this.pool.getPlayerIndices().getCapacity()));
+      for (int i = 0; i < rotations.length(); i++) {
+        grown.set(i, rotations.get(i));
+      }
+      return this.lookAtRotations = grown;
+    }
+  }
+
+  /**
+   * Forgets the rotations sent to the players this npc looks at. Called when the rotation of this
+   * npc gets changed for players, so that the npc tick sends the look at rotation again.
+   */
+  @ApiStatus.Internal
+  public void resetLookAtRotations() {
+    // every reset needs an epoch which was never used, concurrent resets must not share one
+    this.lookAtRotationEpoch.incrementAndGet();
   }
 
   /**
@@ -175,7 +370,8 @@ protected void removeSeeingPlayer(@NotNull Player player) {
   @NotNull
   @Unmodifiable
   public Collection<Player> getSeeingPlayers() {
-    return Collections.unmodifiableCollection(this.seeingPlayers);
+    // copied on read instead of on every show and hide, which happen far more often
+    return Collections.unmodifiableList(new ArrayList<>(this.seeingPlayers));
   }
 
   /**
@@ -195,6 +391,7 @@ public boolean isShownFor(@NotNull Player player) {
    */
   public void addExcludedPlayer(@NotNull Player player) {
     this.excludedPlayers.add(player);
+    this.invalidateAudience(player);
   }
 
   /**
@@ -204,12 +401,14 @@ public void addExcludedPlayer(@NotNull Player player) {
    */
   public void removeExcludedPlayer(@NotNull Player player) {
     this.excludedPlayers.remove(player);
+    this.invalidateAudience(player);
   }
 
   /**
    * A modifiable collection of all players which are not allowed to see this player. Modifications
    * to the returned collection should be done using {@link #addExcludedPlayer(Player)} and {@link
-   * #removeExcludedPlayer(Player)}.
+   * #removeExcludedPlayer(Player)}, which cause the visibility of this npc to be evaluated again
+   * right away.
    *
    * @return a collection of all players which are explicitly excluded from seeing this NPC.
    */
@@ -228,6 +427,131 @@ public boolean isExcluded(@NotNull Player player) {
     return this.excludedPlayers.contains(player);
   }
 
+  /**
+   * Get the audience of this npc, deciding which players can see this npc in addition to the
+   * excluded players.
+   *
+   * @return the audience of this npc, null if all players which are not excluded can see it.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @Nullable
+  public Predicate<Player> getAudience() {
+    return this.audience;
+  }
+
+  /**
+   * Sets the audience of this npc, deciding which players can see this npc in addition to the
+   * excluded players. The audience is evaluated once per player and cached, see {@link Audience}
+   * for the common audiences and the invalidation of the cached results.
+   *
+   * @param audience the audience of this npc, null to let all players which are not excluded see
+   *                 it.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void setAudience(@Nullable Predicate<Player> audience) {
+    this.audience = audience;
+    this.invalidateAudience();
+  }
+
+  /**
+   * Get if the given {@code player} can see this npc, meaning the player is not excluded and in
+   * the audience of this npc. The result is cached until it is invalidated. The audience is only
+   * evaluated on the main thread, when called from another thread without a cached result the
+   * evaluation is queued and the player is assumed to keep the current visibility until then.
+   *
+   * @param player the player to check.
+   * @return if the player can see this npc.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public boolean isInAudience(@NotNull Player player) {
+    return this.isInAudience(player, this.pool.getPlayerIndices().getIndex(player));
+  }
+
+  /**
+   * Get if the given {@code player}, whose player index is already known, can see this npc.
+   *
+   * @param player the player to check.
+   * @param index  the player index of the player.
+   * @return if the player can see this npc.
+   * @see #isInAudience(Player)
+   */
+  boolean isInAudience(@NotNull Player player, int index) {
+    // the excluded players are not cached as they might be modified directly
+    if (this.excludedPlayers.contains(player)) {
+      return false;
+    }
+    if (this.audience == null) {
+      return true;
+    }
+
+    if (!Bukkit.isPrimaryThread()) {
+      Boolean member = this.audienceCache.getCached(index);
+      if (member != null) {
+        return member;
+      }
+
+      // the player is evaluated again after the audience was evaluated on the main thread
+      if (index >= 0) {
+        this.pool.getAudienceEvaluations().queue(this, player);
+      }
+      return index >= 0 && this.isShownFor(player);
+    }
+
+    return this.audienceCache.isMember(
+        player,
+        index,
+        this.pool.getPlayerIndices().getCapacity(),
+        this::evaluateAudience);
+  }
+
+  /**
+   * Invalidates the cached audience results of all players, for example because the state the
+   * audience depends on changed for many players. The visibility of this npc is evaluated again
+   * in the next npc tick.
+   *
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void invalidateAudience() {
+    this.audienceCache.invalidateAll();
+    this.pool.invalidatePlayers();
+  }
+
+  /**
+   * Invalidates the cached audience result of the given {@code player}, for example because the
+   * permissions or the party of the player changed. The visibility of this npc is evaluated again
+   * in the next npc tick.
+   *
+   * @param player the player to invalidate the result of.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void invalidateAudience(@NotNull Player player) {
+    this.audienceCache.invalidate(this.pool.getPlayerIndices().getIndex(player));
+    this.pool.invalidatePlayer(player);
+  }
+
+  /**
+   * Forgets the exclusion and the cached audience result of the given {@code player}, called when
+   * the player quits before the player index is reused.
+   *
+   * @param player the player to forget.
+   * @param index  the player index of the player.
+   */
+  void forgetPlayer(@NotNull Player player, int index) {
+    this.excludedPlayers.remove(player);
+    this.audienceCache.invalidate(index);
+  }
+
+  /**
+   * Evaluates if the given {@code player} is in the audience of this npc, without using the cache.
+   *
+   * @param player the player to check.
+   * @return if the player is in the audience.
+   */
+  private boolean evaluateAudience(@NotNull Player player) {
+    Predicate<Player> audience = this.audience;
+    return audience == null || audience.test(player);
+  }
+
   /**
    * Creates a new animation modifier which serves methods to play animations on an NPC
    *
@@ -326,6 +650,61 @@ public Profile getProfile() {
     return this.profile;
   }
 
+  /**
+   * Get the pool which manages this npc.
+   *
+   * @return the pool which manages this npc.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  public NPCPool getPool() {
+    return this.pool;
+  }
+
+  /**
+   * Adds a handler which is called on the packet thread when a player interacts with this npc,
+   * after the handlers registered on the pool of this npc.
+   *
+   * @param handler the handler to add.
+   * @see NPCPool#addAsyncInteractionHandler(AsyncInteractionHandler)
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void addAsyncInteractionHandler(@NotNull AsyncInteractionHandler handler) {
+    this.asyncInteractionHandlers.add(Preconditions.checkNotNull(handler, "handler"));
+  }
+
+  /**
+   * Removes a handler previously added to this npc.
+   *
+   * @param handler the handler to remove.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void removeAsyncInteractionHandler(@NotNull AsyncInteractionHandler handler) {
+    this.asyncInteractionHandlers.remove(handler);
+  }
+
+  /**
+   * Get the async interaction handlers of this npc.
+   *
+   * @return the async interaction handlers of this npc.
+   */
+  @NotNull
+  Collection<AsyncInteractionHandler> getAsyncInteractionHandlers() {
+    return this.asyncInteractionHandlers;
+  }
+
+  /**
+   * Get the cache of the packets of this npc which are the same for every player.
+   *
+   * @return the packet templates of this npc.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  @ApiStatus.Internal
+  public PacketTemplates getPacketTemplates() {
+    return this.packetTemplates;
+  }
+
   /**
    * Get the entity id of this npc.
    *
@@ -345,8 +724,17 @@ public Location getLocation() {
     return this.location;
   }
 
+  /**
+   * Sets the location where this npc is located. This does not send any packets to the players
+   * seeing this npc, use {@link #movement()} to move the npc for them.
+   *
+   * @param location the new location of this npc.
+   */
   public void setLocation(@NotNull Location location) {
-    this.location = location;
+    this.location = Preconditions.checkNotNull(location, "location");
+    // the spawn and rotation packets contain the location
+    this.packetTemplates.invalidate();
+    this.pool.handleNpcChange(this);
   }
 
   /**
@@ -385,6 +773,29 @@ public void setImitatePlayer(boolean imitatePlayer) {
     this.imitatePlayer = imitatePlayer;
   }
 
+  /**
+   * Gets the priority of this npc when the amount of npcs visible for a player is limited. The
+   * priority is handled like the npc being that many blocks closer to the player.
+   *
+   * @return the priority of this npc.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public double getPriority() {
+    return this.priority;
+  }
+
+  /**
+   * Sets the priority of this npc when the amount of npcs visible for a player is limited. The
+   * priority is handled like the npc being that many blocks closer to the player.
+   *
+   * @param priority the priority of this npc.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void setPriority(double priority) {
+    this.priority = priority;
+    this.pool.handleNpcChange(this);
+  }
+
   /**
    * Gets if this npc should always use the profile of the player being spawned to when spawning.
    *
@@ -395,6 +806,14 @@ public boolean isUsePlayerProfiles() {
     return this.usePlayerProfiles;
   }
 
+  /**
+   * A spawn scheduled after showing the npc to a player.
+   */
+  private static final class PendingSpawn {
+
+    private volatile BukkitTask task;
+  }
+
   /**
    * A builder for a npc.
    */
@@ -405,6 +824,8 @@ public static class Builder {
     private boolean lookAtPlayer = true;
     private boolean imitatePlayer = true;
     private boolean usePlayerProfiles = false;
+    private double priority = 0;
+    private Predicate<Player> audience;
 
     private Location location = new Location(Bukkit.getWorlds().get(0), 0D, 0D, 0D);
     private SpawnCustomizer spawnCustomizer = (npc, player) -> {
@@ -507,6 +928,35 @@ public Builder usePlayerProfiles(boolean usePlayerProfiles) {
       return this;
     }
 
+    /**
+     * Sets the priority of the npc when the amount of npcs visible for a player is limited, default
+     * is 0. The priority is handled like the npc being that many blocks closer to the player.
+     *
+     * @param priority the priority of the npc.
+     * @return this builder instance.
+     * @see NPCPool.Builder#maxVisibleNpcs(int)
+     * @since 2.8.1-SNAPSHOT
+     */
+    public Builder priority(double priority) {
+      this.priority = priority;
+      return this;
+    }
+
+    /**
+     * Sets the audience of the npc, deciding which players can see the npc, default is all
+     * players.
+     *
+     * @param audience the audience of the npc, null for all players.
+     * @return this builder instance.
+     * @see Audience
+     * @see NPC#setAudience(Predicate)
+     * @since 2.8.1-SNAPSHOT
+     */
+    public Builder audience(@Nullable Predicate<Player> audience) {
+      this.audience = audience;
+      return this;
+    }
+
     /**
      * Passes the NPC to a pool which handles events, spawning and destruction of this NPC for
      * players
@@ -521,13 +971,16 @@ public NPC build(@NotNull NPCPool pool) {
       }
 
       NPC npc = new NPC(
+          pool,
           this.profile,
           this.location,
           this.spawnCustomizer,
           pool.getFreeEntityId(),
           this.lookAtPlayer,
           this.imitatePlayer,
-          this.usePlayerProfiles);
+          this.usePlayerProfiles,
+          this.priority,
+          this.audience);
       pool.takeCareOf(npc);
 
       return npc;
@@ -0,0 +1,320 @@
+package com.github.juliarn.npc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A world-partitioned grid holding all NPCs of a pool, keyed by the chunk the NPC is located in.
+ * Used to only evaluate the NPCs near a player instead of every NPC of the pool. The grid tracks
+ * if the chunks containing npcs are loaded as well, which is updated by the chunk events instead
+ * of asking the world each time.
+ */
+final class NPCGrid {
+
+  /**
+   * The shift to convert a block coordinate to a cell coordinate, one cell is one chunk wide.
+   */
+  private static final int CELL_SHIFT = 4;
+
+  /**
+   * All cells which contain at least one npc, mapped by the unique id of their world.
+   */
+  private final Map<UUID, Map<Long, ChunkCell>> worlds = new ConcurrentHashMap<>();
+  /**
+   * The cell every npc in this grid is currently registered in.
+   */
+  private final Map<NPC, Cell> cells = new ConcurrentHashMap<>();
+  /**
+   * The modification count at the last change of each cell, mapped by the unique id of their world.
+   */
+  private final Map<UUID, Map<Long, Long>> cellModifications = new ConcurrentHashMap<>();
+  /**
+   * The amount of modifications made to this grid.
+   */
+  private final AtomicLong modificationCount = new AtomicLong();
+
+  /**
+   * Creates the cell key of the given cell coordinates.
+   *
+   * @param cellX the x coordinate of the cell.
+   * @param cellZ the z coordinate of the cell.
+   * @return the key of the cell.
+   */
+  private static long cellKey(int cellX, int cellZ) {
+    return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Converts the given coordinate to the coordinate of the cell it's in.
+   *
+   * @param coordinate the coordinate to convert.
+   * @return the coordinate of the cell.
+   */
+  private static int toCell(double coordinate) {
+    return (int) Math.floor(coordinate) >> CELL_SHIFT;
+  }
+
+  /**
+   * Adds the given {@code npc} to this grid or moves it to the cell of its current location.
+   *
+   * @param npc the npc to add or update.
+   */
+  void update(@NotNull NPC npc) {
+    Location location = npc.getLocation();
+    World world = location.getWorld();
+    if (world == null) {
+      this.remove(npc);
+      return;
+    }
+
+    int cellX = toCell(location.getX());
+    int cellZ = toCell(location.getZ());
+    Cell target = new Cell(world.getUID(), cellKey(cellX, cellZ));
+    this.cells.compute(npc, ($, previous) -> {
+      if (!target.equals(previous)) {
+        if (previous != null) {
+          this.removeFromCell(npc, previous);
+        }
+        this.worlds.computeIfAbsent(target.worldId, $1 -> new ConcurrentHashMap<>())
+            .compute(target.key, ($1, cell) -> {
+              // the load state of a new cell is unknown, it's kept up to date by the events
+              ChunkCell chunkCell = cell == null
+                  ? new ChunkCell(world.isChunkLoaded(cellX, cellZ))
+                  : cell;
+              chunkCell.npcs.add(npc);
+              return chunkCell;
+            });
+      }
+
+      // moving inside of a cell changes the distance to the players as well
+      if (previous != null) {
+        this.markModified(previous);
+      }
+      this.markModified(target);
+      return target;
+    });
+  }
+
+  /**
+   * Removes the given {@code npc} from this grid.
+   *
+   * @param npc the npc to remove.
+   */
+  void remove(@NotNull NPC npc) {
+    this.cells.computeIfPresent(npc, ($, previous) -> {
+      this.removeFromCell(npc, previous);
+      this.markModified(previous);
+      return null;
+    });
+  }
+
+  /**
+   * Updates if the given chunk is loaded and marks its cell as modified if it contains any npc.
+   * Chunks without npcs are not tracked.
+   *
+   * @param world  the world of the chunk.
+   * @param chunkX the x coordinate of the chunk.
+   * @param chunkZ the z coordinate of the chunk.
+   * @param loaded if the chunk is loaded now.
+   * @return the npcs located in the chunk.
+   */
+  @NotNull
+  Collection<NPC> setChunkLoaded(@NotNull World world, int chunkX, int chunkZ, boolean loaded) {
+    Map<Long, ChunkCell> worldCells = this.worlds.get(world.getUID());
+    // a cell is exactly one chunk wide
+    long key = cellKey(chunkX, chunkZ);
+    ChunkCell cell = worldCells == null ? null : worldCells.get(key);
+    if (cell == null) {
+      return Collections.emptySet();
+    }
+
+    if (cell.loaded != loaded) {
+      cell.loaded = loaded;
+      this.markModified(new Cell(world.getUID(), key));
+    }
+    return Collections.unmodifiableSet(cell.npcs);
+  }
+
+  /**
+   * Get the amount of modifications made to this grid so far.
+   *
+   * @return the current modification count of this grid.
+   */
+  long modificationCount() {
+    return this.modificationCount.get();
+  }
+
+  /**
+   * Forgets the modifications made up to the given modification count, including those of cells
+   * which were dropped since. A cell without a known modification counts as not modified, so this
+   * must only be called with a modification count every reader has already seen.
+   *
+   * @param oldest the oldest modification count any reader checks against.
+   */
+  void pruneModifications(long oldest) {
+    for (Map<Long, Long> modifications : this.cellModifications.values()) {
+      // only removes entries which were not modified again in the meantime
+      modifications.values().removeIf(modification -> modification <= oldest);
+    }
+  }
+
+  /**
+   * Get if any cell overlapping the square around the given center was modified after the given
+   * modification count.
+   *
+   * @param world  the world of the center.
+   * @param x      the x coordinate of the center.
+   * @param z      the z coordinate of the center.
+   * @param radius the radius around the center.
+   * @param since  the modification count to check against.
+   * @return if a cell around the center was modified after the given modification count.
+   */
+  boolean isModifiedSince(@Nullable World world, double x, double z, double radius, long since) {
+    if (this.modificationCount.get() <= since) {
+      return false;
+    }
+
+    Map<Long, Long> modifications = world == null
+        ? null
+        : this.cellModifications.get(world.getUID());
+    if (modifications == null) {
+      return false;
+    }
+
+    int minX = toCell(x - radius);
+    int maxX = toCell(x + radius);
+    int minZ = toCell(z - radius);
+    int maxZ = toCell(z + radius);
+
+    for (int cellX = minX; cellX <= maxX; cellX++) {
+      for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+        Long modification = modifications.get(cellKey(cellX, cellZ));
+        if (modification != null && modification > since) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Collects all NPCs located in the cells overlapping the square around the given center.
+   *
+   * @param world    the world to collect the NPCs of.
+   * @param x        the x coordinate of the center.
+   * @param z        the z coordinate of the center.
+   * @param radius   the radius around the center.
+   * @param target   the collection to add the found NPCs to.
+   * @param unloaded the collection to additionally add the found NPCs in unloaded chunks to.
+   */
+  void collectNearby(
+      @Nullable World world,
+      double x,
+      double z,
+      double radius,
+      @NotNull Collection<NPC> target,
+      @NotNull Collection<NPC> unloaded
+  ) {
+    Map<Long, ChunkCell> worldCells = world == null ? null : this.worlds.get(world.getUID());
+    if (worldCells == null || worldCells.isEmpty()) {
+      return;
+    }
+
+    int minX = toCell(x - radius);
+    int maxX = toCell(x + radius);
+    int minZ = toCell(z - radius);
+    int maxZ = toCell(z + radius);
+
+    for (int cellX = minX; cellX <= maxX; cellX++) {
+      for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+        ChunkCell cell = worldCells.get(cellKey(cellX, cellZ));
+        if (cell != null) {
+          target.addAll(cell.npcs);
+          if (!cell.loaded) {
+            unloaded.addAll(cell.npcs);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Records a modification of the given {@code cell}. Must be called after the modification was
+   * made, so that a reader which saw the new modification count also sees the modification.
+   *
+   * @param cell the modified cell.
+   */
+  private void markModified(@NotNull Cell cell) {
+    this.cellModifications.computeIfAbsent(cell.worldId, $ -> new ConcurrentHashMap<>())
+        .put(cell.key, this.modificationCount.incrementAndGet());
+  }
+
+  /**
+   * Removes the given {@code npc} from the given {@code cell}, dropping the cell if it's empty.
+   *
+   * @param npc  the npc to remove.
+   * @param cell the cell to remove the npc from.
+   */
+  private void removeFromCell(@NotNull NPC npc, @NotNull Cell cell) {
+    Map<Long, ChunkCell> worldCells = this.worlds.get(cell.worldId);
+    if (worldCells != null) {
+      worldCells.computeIfPresent(cell.key, ($, chunkCell) -> {
+        chunkCell.npcs.remove(npc);
+        return chunkCell.npcs.isEmpty() ? null : chunkCell;
+      });
+    }
+  }
+
+  /**
+   * The npcs of a cell and if the chunk of the cell is loaded.
+   */
+  private static final class ChunkCell {
+
+    private final Set<NPC> npcs = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    private ChunkCell(boolean loaded) {
+      this.loaded = loaded;
+    }
+  }
+
+  /**
+   * The cell a npc is registered in.
+   */
+  private static final class Cell {
+
+    private final UUID worldId;
+    private final long key;
+
+    private Cell(@NotNull UUID worldId, long key) {
+      this.worldId = worldId;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Cell)) {
+        return false;
+      }
+      Cell cell = (Cell) o;
+      return this.key == cell.key && this.worldId.equals(cell.worldId);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.worldId.hashCode() + Long.hashCode(this.key);
+    }
+  }
+}
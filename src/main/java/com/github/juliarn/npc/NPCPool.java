@@ -5,34 +5,67 @@
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.events.PacketListener;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.WrappedEnumEntityUseAction;
+import com.github.juliarn.npc.event.PlayerNPCBulkHideEvent;
+import com.github.juliarn.npc.event.PlayerNPCBulkShowEvent;
 import com.github.juliarn.npc.event.PlayerNPCHideEvent;
 import com.github.juliarn.npc.event.PlayerNPCInteractEvent;
+import com.github.juliarn.npc.event.PlayerNPCShowEvent;
 import com.github.juliarn.npc.modifier.AnimationModifier;
 import com.github.juliarn.npc.modifier.LabyModModifier;
+import com.github.juliarn.npc.modifier.LookAtAngles;
 import com.github.juliarn.npc.modifier.MetadataModifier;
 import com.github.juliarn.npc.modifier.NPCModifier;
+import com.github.juliarn.npc.modifier.PacketBroadcaster;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -43,15 +76,50 @@
  */
 public class NPCPool implements Listener {
 
-  private static final Random RANDOM = new Random();
+  private static final AtomicInteger POOL_IDS = new AtomicInteger();
+  /**
+   * The amount of npc ticks after which the known modifications of the npc grid are forgotten.
+   */
+  private static final int GRID_PRUNE_INTERVAL = 50;
 
   private final Plugin plugin;
 
   private final double spawnDistance;
+  private final double spawnRadius;
+  private final double despawnRadius;
   private final double actionDistance;
+  private final double movementThreshold;
   private final long tabListRemoveTicks;
 
   private final Map<Integer, NPC> npcMap = new ConcurrentHashMap<>();
+  private final Map<UUID, List<NPC>> npcsByUniqueId = new ConcurrentHashMap<>();
+  private final NPCGrid npcGrid = new NPCGrid();
+  private final PlayerSnapshot.Buffer playerSnapshots = new PlayerSnapshot.Buffer();
+  private final Map<Player, PlayerTickState> playerStates = new ConcurrentHashMap<>();
+  private final Map<Player, Set<NPC>> visibleNpcs = new ConcurrentHashMap<>();
+  private final PlayerIndexRegistry playerIndices = new PlayerIndexRegistry();
+
+  private final ForkJoinPool tickExecutor;
+  private final AtomicBoolean tickRunning = new AtomicBoolean();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final int maxPlayersPerTick;
+  private final int maxVisibleNpcs;
+  private final long tickTimeBudget;
+  private volatile int tickCursor;
+  private int ticksSincePrune;
+
+  private final InteractionQueue interactionQueue;
+  private final VisibilityEventQueue visibilityEvents;
+  private final AudienceEvaluationQueue audienceEvaluations;
+  private final PacketBroadcaster packetBroadcaster;
+  private final Collection<AsyncInteractionHandler> asyncInteractionHandlers =
+      new CopyOnWriteArrayList<>();
+  private final NPCPoolMetrics metrics = new NPCPoolMetrics();
+  private ObjectName metricsName;
+  private PacketListener interactListener;
+  private Listener disableListener;
+  private BukkitTask snapshotTask;
+  private BukkitTask tickTask;
 
   /**
    * Creates a new NPC pool which handles events, spawning and destruction of the NPCs for players.
@@ -82,27 +150,66 @@ public NPCPool(@NotNull Plugin plugin) {
   @ApiStatus.Internal
   public NPCPool(@NotNull Plugin plugin, int spawnDistance, int actionDistance,
       long tabListRemoveTicks) {
-    Preconditions.checkArgument(spawnDistance > 0 && actionDistance > 0, "Distance has to be > 0!");
-    Preconditions.checkArgument(actionDistance <= spawnDistance,
+    this(NPCPool.builder(plugin)
+        .spawnDistance(spawnDistance)
+        .actionDistance(actionDistance)
+        .tabListRemoveTicks(tabListRemoveTicks));
+  }
+
+  /**
+   * Creates a new NPC pool which handles events, spawning and destruction of the NPCs for players.
+   *
+   * @param builder the builder holding the configuration of the pool.
+   */
+  private NPCPool(@NotNull Builder builder) {
+    Preconditions.checkArgument(builder.actionDistance <= builder.spawnDistance,
         "Action distance cannot be higher than spawn distance!");
+    Preconditions.checkArgument(builder.despawnDistance == 0
+            || builder.despawnDistance >= builder.spawnDistance,
+        "Despawn distance cannot be lower than spawn distance!");
 
-    this.plugin = plugin;
+    this.plugin = builder.plugin;
 
     // limiting the spawn distance to the Bukkit view distance to avoid NPCs not being shown
     this.spawnDistance = Math.min(
-        spawnDistance * spawnDistance,
+        builder.spawnDistance * builder.spawnDistance,
         Math.pow(Bukkit.getViewDistance() << 4, 2));
-    this.actionDistance = actionDistance * actionDistance;
-    this.tabListRemoveTicks = tabListRemoveTicks;
+    this.spawnRadius = Math.sqrt(this.spawnDistance);
+    // limited to the view distance as well, the client removes the npcs outside of it anyway
+    this.despawnRadius = Math.min(
+        Math.max(builder.despawnDistance, this.spawnRadius),
+        Bukkit.getViewDistance() << 4);
+    this.actionDistance = builder.actionDistance * builder.actionDistance;
+    this.movementThreshold = builder.movementThreshold * builder.movementThreshold;
+    this.tabListRemoveTicks = builder.tabListRemoveTicks;
+    this.maxPlayersPerTick = builder.maxPlayersPerTick;
+    this.maxVisibleNpcs = builder.maxVisibleNpcs;
+    this.tickTimeBudget = builder.tickTimeBudget;
+    this.interactionQueue = new InteractionQueue(this.plugin, builder.interactionRateLimit);
+    this.visibilityEvents = new VisibilityEventQueue(this.plugin, builder.singleVisibilityEvents);
+    this.audienceEvaluations = new AudienceEvaluationQueue(this.plugin, this);
+    this.packetBroadcaster = builder.serializedBroadcast
+        ? new PacketBroadcaster(this.plugin)
+        : null;
 
-    Bukkit.getPluginManager().registerEvents(this, plugin);
+    // only use a worker pool when the tick should actually run in parallel
+    this.tickExecutor = builder.tickParallelism > 1
+        ? new ForkJoinPool(builder.tickParallelism, NPCPool::newTickWorker, null, false)
+        : null;
+
+    for (Player player : Bukkit.getOnlinePlayers()) {
+      this.playerStates.put(player, new PlayerTickState(this.playerIndices.register(player)));
+    }
+    Bukkit.getPluginManager().registerEvents(this, this.plugin);
+    this.registerDisableListener();
+    this.registerMetrics();
 
     // communication with LabyMod
     String labyModPluginChannel = LabyModModifier.LABYMOD_PLUGIN_CHANNEL.getFullKey();
     // we might send messages on this channel
-    Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, labyModPluginChannel);
-    if (!Bukkit.getMessenger().isIncomingChannelRegistered(plugin, labyModPluginChannel)) {
-      Bukkit.getMessenger().registerIncomingPluginChannel(plugin, labyModPluginChannel,
+    Bukkit.getMessenger().registerOutgoingPluginChannel(this.plugin, labyModPluginChannel);
+    if (!Bukkit.getMessenger().isIncomingChannelRegistered(this.plugin, labyModPluginChannel)) {
+      Bukkit.getMessenger().registerIncomingPluginChannel(this.plugin, labyModPluginChannel,
           (channel, player, message) -> {
             // we don't actually handle LabyMod messages, we just register
             // incoming messages to make sure minecraft:register is sent to the proxy,
@@ -144,98 +251,679 @@ public static Builder builder(@NotNull Plugin plugin) {
    * Adds a packet listener for listening to all use entity packets sent by a client.
    */
   protected void addInteractListener() {
-    ProtocolLibrary.getProtocolManager()
-        .addPacketListener(new PacketAdapter(this.plugin, PacketType.Play.Client.USE_ENTITY) {
-          @Override
-          public void onPacketReceiving(PacketEvent event) {
-            PacketContainer container = event.getPacket();
-            int targetId = container.getIntegers().read(0);
-
-            if (NPCPool.this.npcMap.containsKey(targetId)) {
-              NPC npc = NPCPool.this.npcMap.get(targetId);
-
-              EnumWrappers.Hand usedHand;
-              EnumWrappers.EntityUseAction action;
-
-              if (NPCModifier.MINECRAFT_VERSION >= 17) {
-                WrappedEnumEntityUseAction useAction = container.getEnumEntityUseActions().read(0);
-                // the hand is only available when not attacking
-                action = useAction.getAction();
-                usedHand = action == EnumWrappers.EntityUseAction.ATTACK
-                    ? EnumWrappers.Hand.MAIN_HAND
-                    : useAction.getHand();
-              } else {
-                // the hand is only available when not attacking
-                action = container.getEntityUseActions().read(0);
-                usedHand = action == EnumWrappers.EntityUseAction.ATTACK
-                    ? EnumWrappers.Hand.MAIN_HAND
-                    : container.getHands().optionRead(0).orElse(EnumWrappers.Hand.MAIN_HAND);
-              }
-
-              Bukkit.getScheduler().runTask(
-                  NPCPool.this.plugin,
-                  () -> Bukkit.getPluginManager().callEvent(
-                      new PlayerNPCInteractEvent(
-                          event.getPlayer(),
-                          npc,
-                          action,
-                          usedHand))
-              );
-            }
+    this.interactListener = new PacketAdapter(this.plugin, PacketType.Play.Client.USE_ENTITY) {
+      @Override
+      public void onPacketReceiving(PacketEvent event) {
+        PacketContainer container = event.getPacket();
+        int targetId = container.getIntegers().read(0);
+
+        if (NPCPool.this.npcMap.containsKey(targetId)) {
+          NPC npc = NPCPool.this.npcMap.get(targetId);
+
+          EnumWrappers.Hand usedHand;
+          EnumWrappers.EntityUseAction action;
+
+          if (NPCModifier.MINECRAFT_VERSION >= 17) {
+            WrappedEnumEntityUseAction useAction = container.getEnumEntityUseActions().read(0);
+            // the hand is only available when not attacking
+            action = useAction.getAction();
+            usedHand = action == EnumWrappers.EntityUseAction.ATTACK
+                ? EnumWrappers.Hand.MAIN_HAND
+                : useAction.getHand();
+          } else {
+            // the hand is only available when not attacking
+            action = container.getEntityUseActions().read(0);
+            usedHand = action == EnumWrappers.EntityUseAction.ATTACK
+                ? EnumWrappers.Hand.MAIN_HAND
+                : container.getHands().optionRead(0).orElse(EnumWrappers.Hand.MAIN_HAND);
+          }
+
+          Player player = event.getPlayer();
+          if (NPCPool.this.interactionQueue.add(player, npc, action, usedHand)) {
+            NPCPool.this.handleAsyncInteraction(player, npc, action, usedHand);
           }
-        });
+        }
+      }
+    };
+    ProtocolLibrary.getProtocolManager().addPacketListener(this.interactListener);
+  }
+
+  /**
+   * Calls the async interaction handlers of this pool and of the given npc on the current thread.
+   *
+   * @param player the player who interacted with the npc.
+   * @param npc    the npc the player interacted with.
+   * @param action the action of the interaction.
+   * @param hand   the hand used for the interaction.
+   */
+  private void handleAsyncInteraction(
+      @NotNull Player player,
+      @NotNull NPC npc,
+      @NotNull EnumWrappers.EntityUseAction action,
+      @NotNull EnumWrappers.Hand hand
+  ) {
+    Collection<AsyncInteractionHandler> npcHandlers = npc.getAsyncInteractionHandlers();
+    if (this.asyncInteractionHandlers.isEmpty() && npcHandlers.isEmpty()) {
+      return;
+    }
+
+    InteractionContext context = new InteractionContext(
+        player,
+        npc,
+        PlayerNPCInteractEvent.EntityUseAction.fromHandle(action),
+        PlayerNPCInteractEvent.Hand.fromHandle(hand));
+    for (AsyncInteractionHandler handler : this.asyncInteractionHandlers) {
+      this.callAsyncInteractionHandler(handler, context);
+    }
+    for (AsyncInteractionHandler handler : npcHandlers) {
+      this.callAsyncInteractionHandler(handler, context);
+    }
+  }
+
+  /**
+   * Calls the given handler, logging instead of passing on the exceptions it throws to keep them
+   * from reaching the other handlers and the connection of the player.
+   *
+   * @param handler the handler to call.
+   * @param context the context of the interaction.
+   */
+  private void callAsyncInteractionHandler(
+      @NotNull AsyncInteractionHandler handler,
+      @NotNull InteractionContext context
+  ) {
+    try {
+      handler.handleInteraction(context);
+    } catch (RuntimeException exception) {
+      this.plugin.getLogger().log(Level.SEVERE, "Unable to handle npc interaction", exception);
+    }
+  }
+
+  /**
+   * Registers a listener closing this pool when the plugin owning it is disabled. Bukkit does not
+   * call the listeners of a plugin which is being disabled, the listener is therefore owned by
+   * ProtocolLib, which is disabled after all plugins depending on it.
+   */
+  private void registerDisableListener() {
+    Plugin owner = ProtocolLibrary.getPlugin();
+    if (owner == null || !owner.isEnabled()) {
+      owner = this.plugin;
+    }
+
+    this.disableListener = new Listener() {
+      @EventHandler(priority = EventPriority.MONITOR)
+      public void handlePluginDisable(PluginDisableEvent event) {
+        NPCPool.this.handlePluginDisable(event);
+      }
+    };
+    Bukkit.getPluginManager().registerEvents(this.disableListener, owner);
+  }
+
+  /**
+   * Registers the metrics of this pool as a JMX MXBean, until the pool is closed. A failed
+   * registration only disables the access to the metrics using JMX.
+   */
+  private void registerMetrics() {
+    try {
+      ObjectName name = new ObjectName(String.format(
+          "com.github.juliarn.npc:type=NPCPool,plugin=%s,id=%d",
+          ObjectName.quote(this.plugin.getName()),
+          POOL_IDS.incrementAndGet()));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this.metrics, name);
+      this.metricsName = name;
+    } catch (JMException exception) {
+      this.plugin.getLogger().log(Level.WARNING, "Unable to register npc pool metrics", exception);
+    }
+  }
+
+  /**
+   * Creates a new worker thread for the parallel npc tick.
+   *
+   * @param pool the pool the worker belongs to.
+   * @return the created worker thread.
+   */
+  @NotNull
+  private static ForkJoinWorkerThread newTickWorker(@NotNull ForkJoinPool pool) {
+    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    thread.setName("NPCPool Tick Worker #" + thread.getPoolIndex());
+    thread.setDaemon(true);
+    return thread;
   }
 
   /**
    * Starts the npc tick.
    */
   protected void npcTick() {
-    Bukkit.getScheduler().runTaskTimerAsynchronously(this.plugin, () -> {
-      for (Player player : ImmutableList.copyOf(Bukkit.getOnlinePlayers())) {
-        for (NPC npc : this.npcMap.values()) {
-          Location npcLoc = npc.getLocation();
-          Location playerLoc = player.getLocation();
-          if (!npcLoc.getWorld().equals(playerLoc.getWorld())) {
-            if (npc.isShownFor(player)) {
-              npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
-            }
-            continue;
-          } else if (!npcLoc.getWorld()
-              .isChunkLoaded(npcLoc.getBlockX() >> 4, npcLoc.getBlockZ() >> 4)) {
-            if (npc.isShownFor(player)) {
-              npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.UNLOADED_CHUNK);
-            }
-            continue;
-          }
+    // the player positions are read on the main thread and published to the async tick
+    this.snapshotTask = Bukkit.getScheduler()
+        .runTaskTimer(this.plugin, this.playerSnapshots::capture, 0, 1);
+
+    this.tickTask = Bukkit.getScheduler().runTaskTimerAsynchronously(this.plugin, () -> {
+      // async timers don't wait for the previous run, skip if it's still running
+      if (!this.tickRunning.compareAndSet(false, true)) {
+        return;
+      }
 
-          double distance = npcLoc.distanceSquared(playerLoc);
-          boolean inRange = distance <= this.spawnDistance;
+      try {
+        this.runTick();
+      } finally {
+        this.tickRunning.set(false);
+      }
+    }, 20, 2);
+  }
 
-          if ((npc.isExcluded(player) || !inRange) && npc.isShownFor(player)) {
-            npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
-          } else if ((!npc.isExcluded(player) && inRange) && !npc.isShownFor(player)) {
-            npc.show(player, this.plugin, this.tabListRemoveTicks);
-          }
+  /**
+   * Runs a single npc tick, evaluating and applying the visibility of the npcs.
+   */
+  private void runTick() {
+    long tickStart = System.nanoTime();
+    PlayerSnapshot snapshot = this.playerSnapshots.acquire();
+    int evaluatedPlayers = 0;
+    int evaluatedNpcs = 0;
+
+    try {
+      for (PlayerTickResult result : this.evaluatePlayers(snapshot)) {
+        evaluatedPlayers++;
+        evaluatedNpcs += result.nearby.size();
+        this.applyTickResult(result);
+      }
+    } finally {
+      snapshot.release();
+    }
+
+    if (++this.ticksSincePrune >= GRID_PRUNE_INTERVAL) {
+      this.ticksSincePrune = 0;
+      this.pruneGridModifications();
+    }
+    this.metrics.recordTick(System.nanoTime() - tickStart, evaluatedPlayers, evaluatedNpcs);
+  }
+
+  /**
+   * Forgets the modifications of the npc grid which are known to the states of all players, so
+   * that the modifications of the cells a npc passed through don't pile up.
+   */
+  private void pruneGridModifications() {
+    long oldest = this.npcGrid.modificationCount();
+    for (PlayerTickState state : this.playerStates.values()) {
+      oldest = Math.min(oldest, state.getGridModificationCount());
+    }
+    this.npcGrid.pruneModifications(oldest);
+  }
+
+  /**
+   * Hides all npcs shown to the given {@code player} which are not in the given {@code nearby}
+   * npcs.
+   *
+   * @param player      the player to hide the npcs from.
+   * @param playerIndex the player index of the player.
+   * @param nearby      the npcs in the grid cells around the player.
+   */
+  private void hideOutside(@NotNull Player player, int playerIndex, @NotNull Set<NPC> nearby) {
+    Set<NPC> visible = this.visibleNpcs.get(player);
+    if (visible != null) {
+      for (NPC npc : visible) {
+        if (!nearby.contains(npc)) {
+          npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE, playerIndex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates the visibility of the npcs for the players in the given {@code snapshot}. If the
+   * pool was configured with a tick budget only the players fitting into the budget are evaluated,
+   * starting at the player after the last one evaluated by the previous tick. If the pool was
+   * configured with a tick parallelism the players are split into partitions which are evaluated in
+   * parallel.
+   *
+   * @param snapshot the snapshot of the players to evaluate.
+   * @return the visibility decisions for the evaluated players.
+   */
+  @NotNull
+  private List<PlayerTickResult> evaluatePlayers(@NotNull PlayerSnapshot snapshot) {
+    if (snapshot.size == 0) {
+      return Collections.emptyList();
+    }
+
+    int start = this.tickCursor % snapshot.size;
+    int count = this.maxPlayersPerTick > 0
+        ? Math.min(this.maxPlayersPerTick, snapshot.size)
+        : snapshot.size;
+    long deadline = this.tickTimeBudget > 0 ? System.nanoTime() + this.tickTimeBudget : 0;
+
+    if (this.tickExecutor == null || this.tickExecutor.isShutdown() || count < 2) {
+      List<PlayerTickResult> results = this.evaluatePlayers(snapshot, start, 0, count, deadline);
+      this.tickCursor = (start + results.size()) % snapshot.size;
+      return results;
+    }
+
+    int partitionSize = (count + this.tickExecutor.getParallelism() - 1)
+        / this.tickExecutor.getParallelism();
+    List<Callable<List<PlayerTickResult>>> partitions = new ArrayList<>();
+    for (int from = 0; from < count; from += partitionSize) {
+      int partitionStart = from;
+      int partitionEnd = Math.min(from + partitionSize, count);
+      partitions.add(
+          () -> this.evaluatePlayers(snapshot, start, partitionStart, partitionEnd, deadline));
+    }
+
+    List<PlayerTickResult> results = new ArrayList<>(count);
+    // the position of the first player which was not evaluated because of the time budget
+    int next = count;
+    int partitionStart = 0;
+    for (Future<List<PlayerTickResult>> future : this.tickExecutor.invokeAll(partitions)) {
+      try {
+        List<PlayerTickResult> partitionResults = future.get();
+        int partitionLength = Math.min(partitionSize, count - partitionStart);
+        if (next == count && partitionResults.size() < partitionLength) {
+          next = partitionStart + partitionResults.size();
+        }
+        results.addAll(partitionResults);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException exception) {
+        this.plugin.getLogger()
+            .log(Level.SEVERE, "Unable to evaluate npc visibility", exception.getCause());
+      }
+      partitionStart += partitionSize;
+    }
+
+    this.tickCursor = (start + next) % snapshot.size;
+    return results;
+  }
+
+  /**
+   * Evaluates the visibility of the npcs for the players in the given range of positions. A
+   * position is relative to the {@code start} index in the snapshot and wraps around the end of the
+   * snapshot. At least one player is evaluated before the {@code deadline} is checked.
+   *
+   * @param snapshot the snapshot of the players to evaluate.
+   * @param start    the index in the snapshot of the first position.
+   * @param from     the position of the first player to evaluate, inclusive.
+   * @param to       the position of the last player to evaluate, exclusive.
+   * @param deadline the {@link System#nanoTime()} after which no further player should be
+   *                 evaluated, {@code 0} for no deadline.
+   * @return the visibility decisions for the evaluated players, in order of their position.
+   */
+  @NotNull
+  private List<PlayerTickResult> evaluatePlayers(
+      @NotNull PlayerSnapshot snapshot,
+      int start,
+      int from,
+      int to,
+      long deadline
+  ) {
+    List<PlayerTickResult> results = new ArrayList<>(to - from);
+    for (int position = from; position < to; position++) {
+      PlayerTickResult result = this.evaluatePlayer(snapshot, (start + position) % snapshot.size);
+      if (result != null) {
+        results.add(result);
+      }
+      if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+        break;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Decides which npcs should be shown, hidden or rotated for the player at the given {@code
+   * index} of the snapshot. This method does not change the state of any npc and can therefore be
+   * called from multiple threads.
+   *
+   * @param snapshot the snapshot of the players.
+   * @param index    the index of the player to evaluate in the snapshot.
+   * @return the visibility decisions for the player, null if the player quit since the snapshot
+   *         was captured.
+   */
+  @Nullable
+  private PlayerTickResult evaluatePlayer(@NotNull PlayerSnapshot snapshot, int index) {
+    Player player = snapshot.players[index];
+    // the state is removed when the player quits, it must not be created again
+    PlayerTickState state = this.playerStates.get(player);
+    if (state == null || state.hasQuit()) {
+      return null;
+    }
+
+    synchronized (state) {
+      if (state.isStale(snapshot.sequence)) {
+        // the player was evaluated by an event after the snapshot was captured
+        PlayerTickResult result = new PlayerTickResult(
+            player,
+            snapshot.worlds[index],
+            snapshot.x(index),
+            snapshot.y(index),
+            snapshot.z(index));
+        result.nearby = state.getNearby();
+        result.stateVersion = state.getVersion();
+        return result;
+      }
+
+      return this.evaluatePlayer(
+          player,
+          state,
+          snapshot.worlds[index],
+          snapshot.x(index),
+          snapshot.y(index),
+          snapshot.z(index),
+          snapshot.viewDistances[index]);
+    }
+  }
+
+  /**
+   * Decides which npcs should be shown, hidden or rotated for the given {@code player} at the given
+   * position. This method does not change the state of any npc, but must be synchronized on the
+   * tick state of the player.
+   *
+   * @param player       the player to evaluate.
+   * @param state        the tick state of the player.
+   * @param world        the world of the player.
+   * @param x            the x coordinate of the player.
+   * @param y            the y coordinate of the player.
+   * @param z            the z coordinate of the player.
+   * @param viewDistance the view distance of the player in chunks.
+   * @return the visibility decisions for the player.
+   */
+  @NotNull
+  private PlayerTickResult evaluatePlayer(
+      @NotNull Player player,
+      @NotNull PlayerTickState state,
+      @Nullable World world,
+      double x,
+      double y,
+      double z,
+      int viewDistance
+  ) {
+    PlayerTickResult result = new PlayerTickResult(player, world, x, y, z);
+
+    // the npcs are not rendered by the client outside of its view distance
+    double viewRadius = viewDistance << 4;
+    double spawnRadius = Math.min(this.spawnRadius, viewRadius);
+    double spawnDistance = spawnRadius * spawnRadius;
+    // shown npcs are kept until the player is outside the despawn distance
+    double despawnRadius = Math.min(this.despawnRadius, viewRadius);
+    double despawnDistance = despawnRadius * despawnRadius;
+
+    // read before the evaluation, changes made while evaluating are picked up by the next tick
+    long gridModificationCount = this.npcGrid.modificationCount();
+    if (!state.needsEvaluation(
+        this.npcGrid, world, x, y, z, despawnRadius, this.movementThreshold)) {
+      // nothing changed around the player, only the npcs looking at the player need an update
+      result.nearby = state.getNearby();
+      result.stateVersion = state.getVersion();
+      for (NPC npc : result.nearby) {
+        if (npc.isLookAtPlayer()
+            && npc.isShownFor(player)
+            && this.distanceSquared(npc, x, y, z) <= this.actionDistance) {
+          result.lookAts.add(npc);
+        }
+      }
+      return result;
+    }
+
+    // only the npcs in the grid cells around the player can be in the (de)spawn distance
+    result.nearby = new HashSet<>();
+    Set<NPC> unloaded = new HashSet<>();
+    this.npcGrid.collectNearby(world, x, z, despawnRadius, result.nearby, unloaded);
+    state.update(world, x, y, z, gridModificationCount, result.nearby);
+    result.stateVersion = state.getVersion();
+
+    // only collect the npcs which may be visible when they need to be ranked
+    List<VisibilityCandidate> candidates = this.maxVisibleNpcs > 0 ? new ArrayList<>() : null;
+    for (NPC npc : result.nearby) {
+      // most players are not near an unloaded chunk containing npcs
+      if (!unloaded.isEmpty() && unloaded.contains(npc)) {
+        if (npc.isShownFor(player)) {
+          result.hide(npc, PlayerNPCHideEvent.Reason.UNLOADED_CHUNK);
+        }
+        continue;
+      }
+
+      double distance = this.distanceSquared(npc, x, y, z);
+      boolean shown = npc.isShownFor(player);
+      boolean inRange = distance <= (shown ? despawnDistance : spawnDistance);
+
+      if (!inRange || !npc.isInAudience(player, state.getPlayerIndex())) {
+        if (shown) {
+          result.hide(npc, PlayerNPCHideEvent.Reason.SPAWN_DISTANCE);
+        }
+        continue;
+      }
+
+      if (candidates == null) {
+        this.keepVisible(result, npc, distance, shown);
+      } else {
+        candidates.add(new VisibilityCandidate(npc, distance, shown));
+      }
+    }
 
-          if (npc.isShownFor(player) && npc.isLookAtPlayer() && distance <= this.actionDistance) {
-            npc.rotation().queueLookAt(playerLoc).send(player);
+    if (candidates != null) {
+      if (candidates.size() > this.maxVisibleNpcs) {
+        // the nearest npcs with the highest priority stay visible
+        candidates.sort(Comparator.comparingDouble(VisibilityCandidate::getScore));
+        List<VisibilityCandidate> exceeding = candidates.subList(
+            this.maxVisibleNpcs,
+            candidates.size());
+        for (VisibilityCandidate candidate : exceeding) {
+          if (candidate.shown) {
+            result.hide(candidate.npc, PlayerNPCHideEvent.Reason.VISIBILITY_LIMIT);
           }
         }
+        exceeding.clear();
       }
-    }, 20, 2);
+
+      for (VisibilityCandidate candidate : candidates) {
+        this.keepVisible(result, candidate.npc, candidate.distance, candidate.shown);
+      }
+    }
+
+    return result;
   }
 
   /**
-   * @return A free entity id which can be used for NPCs
+   * Records that the given {@code npc} should be visible for the player of the given result,
+   * showing it if needed.
+   *
+   * @param result   the result of the player.
+   * @param npc      the npc which should be visible.
+   * @param distance the squared distance between the npc and the player.
+   * @param shown    if the npc is currently shown to the player.
    */
-  protected int getFreeEntityId() {
-    int id;
+  private void keepVisible(
+      @NotNull PlayerTickResult result,
+      @NotNull NPC npc,
+      double distance,
+      boolean shown
+  ) {
+    if (!shown) {
+      result.shows.add(npc);
+    }
+    if (npc.isLookAtPlayer() && distance <= this.actionDistance) {
+      result.lookAts.add(npc);
+    }
+  }
+
+  /**
+   * Get the squared distance between the given {@code npc} and the given position.
+   *
+   * @param npc the npc to get the distance to.
+   * @param x   the x coordinate of the position.
+   * @param y   the y coordinate of the position.
+   * @param z   the z coordinate of the position.
+   * @return the squared distance between the npc and the position.
+   */
+  private double distanceSquared(@NotNull NPC npc, double x, double y, double z) {
+    Location npcLoc = npc.getLocation();
+    double distanceX = npcLoc.getX() - x;
+    double distanceY = npcLoc.getY() - y;
+    double distanceZ = npcLoc.getZ() - z;
+    return distanceX * distanceX + distanceY * distanceY + distanceZ * distanceZ;
+  }
+
+  /**
+   * Get the tick state of the given {@code player}.
+   *
+   * @param player the player to get the state of.
+   * @return the tick state of the player, null if the player is not online.
+   */
+  @Nullable
+  PlayerTickState getPlayerState(@NotNull Player player) {
+    return this.playerStates.get(player);
+  }
+
+  /**
+   * Forces the next npc tick to evaluate the visibility of all npcs for the given {@code player},
+   * even if the player did not move.
+   *
+   * @param player the player to evaluate in the next tick.
+   */
+  void invalidatePlayer(@NotNull Player player) {
+    PlayerTickState state = this.playerStates.get(player);
+    if (state != null) {
+      state.invalidate();
+    }
+  }
+
+  /**
+   * Forces the next npc tick to evaluate the visibility of all npcs for all players, even if they
+   * did not move.
+   */
+  void invalidatePlayers() {
+    for (PlayerTickState state : this.playerStates.values()) {
+      state.invalidate();
+    }
+  }
+
+  /**
+   * Evaluates the given {@code player} right away instead of waiting for the next npc tick, for
+   * example because the player teleported. The npcs around the previous location of the player are
+   * hidden and the npcs around the new location are shown afterwards. Must be called on the main
+   * thread.
+   *
+   * @param player   the player to evaluate.
+   * @param location the new location of the player.
+   */
+  private void reevaluatePlayer(@NotNull Player player, @NotNull Location location) {
+    PlayerTickState state = this.playerStates.get(player);
+    if (state == null || state.hasQuit()) {
+      return;
+    }
+
+    PlayerTickResult result;
+
+    synchronized (state) {
+      // the snapshots captured so far contain the previous location of the player
+      state.skipSnapshotsUntil(this.playerSnapshots.latestSequence());
+      state.invalidate();
+      result = this.evaluatePlayer(
+          player,
+          state,
+          location.getWorld(),
+          location.getX(),
+          location.getY(),
+          location.getZ(),
+          Bukkit.getViewDistance());
+
+      // the npcs around the previous location are hidden as they are not part of the evaluation
+      this.applyTickResult(result);
+    }
+  }
+
+  /**
+   * Records that the given {@code npc} is now shown to the given {@code player}, unless the player
+   * is not online anymore.
+   *
+   * @param npc    the npc which is shown.
+   * @param player the player the npc is shown to.
+   * @param state  the tick state of the player, null if the player is not online.
+   * @return if the npc was recorded, {@code false} if the player is not online.
+   */
+  boolean handleShow(@NotNull NPC npc, @NotNull Player player, @Nullable PlayerTickState state) {
+    boolean[] recorded = new boolean[1];
+    // adding inside the map operation keeps a concurrent hide from dropping the set
+    this.visibleNpcs.compute(player, ($, npcs) -> {
+      // the quit handler marks the state before removing the npcs recorded for the player
+      if (state == null || state.hasQuit() || state.getPlayerIndex() < 0) {
+        return npcs;
+      }
+
+      if (npcs == null) {
+        npcs = ConcurrentHashMap.newKeySet();
+      }
+      npcs.add(npc);
+      recorded[0] = true;
+      return npcs;
+    });
+    return recorded[0];
+  }
+
+  /**
+   * Records that the given {@code npc} is no longer shown to the given {@code player}.
+   *
+   * @param npc    the npc which is no longer shown.
+   * @param player the player the npc is no longer shown to.
+   */
+  void handleHide(@NotNull NPC npc, @NotNull Player player) {
+    this.visibleNpcs.computeIfPresent(player, ($, npcs) -> {
+      npcs.remove(npc);
+      return npcs.isEmpty() ? null : npcs;
+    });
+  }
 
-    do {
-      id = RANDOM.nextInt(Integer.MAX_VALUE);
-    } while (this.npcMap.containsKey(id));
+  /**
+   * Applies the visibility decisions made for a player and hides the npcs shown to the player
+   * which are not nearby anymore. Nothing is applied if the player was evaluated again since, the
+   * check and the application are made while holding the tick state of the player.
+   *
+   * @param result the decisions to apply.
+   */
+  private void applyTickResult(@NotNull PlayerTickResult result) {
+    Player player = result.player;
+    PlayerTickState state = this.playerStates.get(player);
+    // the player might have left since the snapshot was captured
+    if (state == null || state.hasQuit()) {
+      return;
+    }
+
+    // an evaluation made while applying would be overwritten by the decisions of this result
+    synchronized (state) {
+      // the player was evaluated again in the meantime, for example because of a teleport
+      if (state.getVersion() != result.stateVersion) {
+        return;
+      }
 
-    return id;
+      int playerIndex = state.getPlayerIndex();
+      for (int i = 0; i < result.hides.size(); i++) {
+        result.hides.get(i).hide(player, this.plugin, result.hideReasons.get(i), playerIndex);
+      }
+      // hide the npcs which are no longer in a cell around the player, skipped together with the
+      // other decisions if the result is out of date
+      this.hideOutside(player, playerIndex, result.nearby);
+      for (NPC npc : result.shows) {
+        npc.show(player, this.plugin, this.tabListRemoveTicks, state);
+      }
+      for (NPC npc : result.lookAts) {
+        Location npcLoc = npc.getLocation();
+        short angles = LookAtAngles.lookAt(
+            result.x - npcLoc.getX(),
+            result.y - npcLoc.getY(),
+            result.z - npcLoc.getZ());
+        // only send the rotation if the npc does not already look at the player
+        if (npc.updateLookAtRotation(playerIndex, angles)) {
+          npc.rotation()
+              .queueRotate(LookAtAngles.yaw(angles), LookAtAngles.pitch(angles))
+              .send(player);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return A free entity id which can be used for NPCs
+   * @see EntityIdAllocator
+   */
+  protected int getFreeEntityId() {
+    return EntityIdAllocator.shared().allocate();
   }
 
   /**
@@ -246,6 +934,30 @@ protected int getFreeEntityId() {
    */
   protected void takeCareOf(@NotNull NPC npc) {
     this.npcMap.put(npc.getEntityId(), npc);
+    // npcs using the player profiles might share the unique id of their profile
+    this.npcsByUniqueId.compute(npc.getProfile().getUniqueId(), ($, npcs) -> {
+      if (npcs == null) {
+        return Collections.singletonList(npc);
+      }
+
+      List<NPC> sharingNpcs = new ArrayList<>(npcs.size() + 1);
+      sharingNpcs.addAll(npcs);
+      sharingNpcs.add(npc);
+      return Collections.unmodifiableList(sharingNpcs);
+    });
+    this.npcGrid.update(npc);
+  }
+
+  /**
+   * Moves the given {@code npc} to the grid cell of its current location and marks the cell as
+   * modified, causing the players near the npc to be evaluated again.
+   *
+   * @param npc the npc which changed.
+   */
+  void handleNpcChange(@NotNull NPC npc) {
+    if (this.npcMap.containsKey(npc.getEntityId())) {
+      this.npcGrid.update(npc);
+    }
   }
 
   /**
@@ -283,8 +995,23 @@ public Optional<NPC> getNpc(int entityId) {
    */
   @NotNull
   public Optional<NPC> getNpc(@NotNull UUID uniqueId) {
-    return this.npcMap.values().stream()
-        .filter(npc -> npc.getProfile().getUniqueId().equals(uniqueId)).findFirst();
+    List<NPC> npcs = this.npcsByUniqueId.get(uniqueId);
+    return npcs == null ? Optional.empty() : Optional.of(npcs.get(0));
+  }
+
+  /**
+   * Gets all npcs whose profile has the given {@code uniqueId}. Npcs using the player profiles may
+   * share the unique id of their profile, in that case {@link #getNpc(UUID)} only returns the npc
+   * which was added first.
+   *
+   * @param uniqueId the unique id of the profile of the npcs to get.
+   * @return the npcs by the given {@code uniqueId}, in the order they were added to this pool.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  @Unmodifiable
+  public List<NPC> getNpcs(@NotNull UUID uniqueId) {
+    return this.npcsByUniqueId.getOrDefault(uniqueId, Collections.emptyList());
   }
 
   /**
@@ -295,8 +1022,15 @@ public Optional<NPC> getNpc(@NotNull UUID uniqueId) {
   public void removeNPC(int entityId) {
     this.getNpc(entityId).ifPresent(npc -> {
       this.npcMap.remove(entityId);
+      this.npcsByUniqueId.computeIfPresent(npc.getProfile().getUniqueId(), ($, npcs) -> {
+        List<NPC> remainingNpcs = new ArrayList<>(npcs);
+        remainingNpcs.remove(npc);
+        return remainingNpcs.isEmpty() ? null : Collections.unmodifiableList(remainingNpcs);
+      });
+      this.npcGrid.remove(npc);
       npc.getSeeingPlayers()
           .forEach(player -> npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.REMOVED));
+      EntityIdAllocator.shared().free(entityId);
     });
   }
 
@@ -311,36 +1045,266 @@ public Collection<NPC> getNPCs() {
     return Collections.unmodifiableCollection(this.npcMap.values());
   }
 
+  /**
+   * Get the registry assigning the indices to the online players, used by the npcs of this pool to
+   * keep their per player state.
+   *
+   * @return the player index registry of this pool.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  public PlayerIndexRegistry getPlayerIndices() {
+    return this.playerIndices;
+  }
+
+  /**
+   * Get the queue of the show and hide events of the npcs of this pool.
+   *
+   * @return the queue of the show and hide events.
+   */
+  @NotNull
+  VisibilityEventQueue getVisibilityEvents() {
+    return this.visibilityEvents;
+  }
+
+  /**
+   * Get the queue of the audiences of the npcs of this pool which need to be evaluated on the main
+   * thread.
+   *
+   * @return the queue of the audience evaluations.
+   */
+  @NotNull
+  AudienceEvaluationQueue getAudienceEvaluations() {
+    return this.audienceEvaluations;
+  }
+
+  /**
+   * Adds a handler which is called on the packet thread when a player interacts with a npc of this
+   * pool. The {@link PlayerNPCInteractEvent} is still called on the main thread afterwards.
+   *
+   * @param handler the handler to add.
+   * @see NPC#addAsyncInteractionHandler(AsyncInteractionHandler)
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void addAsyncInteractionHandler(@NotNull AsyncInteractionHandler handler) {
+    this.asyncInteractionHandlers.add(Preconditions.checkNotNull(handler, "handler"));
+  }
+
+  /**
+   * Removes a handler previously added to this pool.
+   *
+   * @param handler the handler to remove.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void removeAsyncInteractionHandler(@NotNull AsyncInteractionHandler handler) {
+    this.asyncInteractionHandlers.remove(handler);
+  }
+
+  /**
+   * Get the broadcaster sending the packets which are the same for every player serialized once.
+   *
+   * @return the broadcaster of this pool, null if serialized broadcasts are disabled.
+   * @see Builder#serializedBroadcast(boolean)
+   * @since 2.8.1-SNAPSHOT
+   */
+  @Nullable
+  @ApiStatus.Internal
+  public PacketBroadcaster getPacketBroadcaster() {
+    return this.packetBroadcaster;
+  }
+
+  /**
+   * Closes this pool, stopping the npc tick and unregistering its listeners, its tick threads and
+   * its metrics. A pool is closed automatically when the plugin owning it is disabled, closing it
+   * explicitly, for example in {@link Plugin#onDisable()} or to replace the pool, releases these
+   * resources earlier. The npcs are not hidden from the players and the pool can't be used anymore
+   * afterwards. Closing a pool a second time has no effect.
+   *
+   * @since 2.8.1-SNAPSHOT
+   */
+  public void close() {
+    if (!this.closed.compareAndSet(false, true)) {
+      return;
+    }
+
+    if (this.snapshotTask != null) {
+      this.snapshotTask.cancel();
+    }
+    if (this.tickTask != null) {
+      this.tickTask.cancel();
+    }
+    HandlerList.unregisterAll(this);
+    if (this.disableListener != null) {
+      HandlerList.unregisterAll(this.disableListener);
+    }
+    if (this.interactListener != null) {
+      ProtocolLibrary.getProtocolManager().removePacketListener(this.interactListener);
+    }
+
+    if (this.tickExecutor != null) {
+      this.tickExecutor.shutdownNow();
+    }
+
+    if (this.metricsName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.metricsName);
+      } catch (JMException exception) {
+        this.plugin.getLogger()
+            .log(Level.WARNING, "Unable to unregister npc pool metrics", exception);
+      }
+      this.metricsName = null;
+    }
+  }
+
+  /**
+   * Closes this pool when the plugin owning it is disabled.
+   *
+   * @param event the event of the disabled plugin.
+   */
+  private void handlePluginDisable(@NotNull PluginDisableEvent event) {
+    if (event.getPlugin() == this.plugin) {
+      this.close();
+    }
+  }
+
+  /**
+   * Get the runtime metrics of this pool. The metrics are registered as a JMX MXBean as well, named
+   * {@code com.github.juliarn.npc:type=NPCPool,plugin="<plugin name>",id=<pool id>}. The MXBean is
+   * unregistered when the pool is closed, which happens automatically when the plugin owning the
+   * pool is disabled. A pool which is no longer used while its plugin stays enabled must be closed
+   * using {@link #close()}, otherwise the MXBean keeps it loaded.
+   *
+   * @return the runtime metrics of this pool.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  public NPCPoolMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  @EventHandler(priority = EventPriority.LOWEST)
+  public void handleJoinIndex(PlayerJoinEvent event) {
+    // before other plugins could show npcs to the player
+    Player player = event.getPlayer();
+    this.playerStates.putIfAbsent(player, new PlayerTickState(this.playerIndices.register(player)));
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void handleJoin(PlayerJoinEvent event) {
+    Player player = event.getPlayer();
+    this.reevaluatePlayer(player, player.getLocation());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void handleTeleport(PlayerTeleportEvent event) {
+    // the location of the player is not updated until the event was handled
+    Location target = event.getTo();
+    if (target != null) {
+      this.reevaluatePlayer(event.getPlayer(), target);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void handleChangedWorld(PlayerChangedWorldEvent event) {
+    Player player = event.getPlayer();
+    this.reevaluatePlayer(player, player.getLocation());
+  }
+
+  /**
+   * Get an unmodifiable copy of all npcs of this pool which are currently shown to the given
+   * {@code player}.
+   *
+   * @param player the player to get the visible npcs of.
+   * @return a copy of the npcs shown to the player.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  @Unmodifiable
+  public Collection<NPC> getVisibleNPCs(@NotNull Player player) {
+    Set<NPC> visible = this.visibleNpcs.get(player);
+    return visible == null
+        ? Collections.emptySet()
+        : Collections.unmodifiableSet(new HashSet<>(visible));
+  }
+
   @EventHandler
   public void handleRespawn(PlayerRespawnEvent event) {
     Player player = event.getPlayer();
 
-    this.npcMap.values().stream()
-        .filter(npc -> npc.isShownFor(player))
-        .forEach(npc -> npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.RESPAWNED));
+    Set<NPC> visible = this.visibleNpcs.get(player);
+    if (visible != null) {
+      for (NPC npc : visible) {
+        npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.RESPAWNED);
+      }
+    }
+    this.invalidatePlayer(player);
   }
 
   @EventHandler
   public void handleQuit(PlayerQuitEvent event) {
     Player player = event.getPlayer();
+    // no npc is shown to the player or evaluated for the player from now on
+    PlayerTickState state = this.playerStates.remove(player);
+    if (state != null) {
+      state.markQuit();
+    }
 
-    this.npcMap.values().stream()
-        .filter(npc -> npc.isShownFor(player) || npc.isExcluded(player))
-        .forEach(npc -> {
-          npc.removeSeeingPlayer(player);
-          npc.removeExcludedPlayer(player);
-        });
+    Set<NPC> visible = this.visibleNpcs.remove(player);
+    if (visible != null) {
+      for (NPC npc : visible) {
+        npc.removeSeeingPlayer(player);
+      }
+    }
+    // exclusions and audience results are not indexed by player, a player quits only once
+    int index = this.playerIndices.getIndex(player);
+    for (NPC npc : this.npcMap.values()) {
+      npc.forgetPlayer(player, index);
+    }
+    this.interactionQueue.removePlayer(player);
+    // the per player state of the npcs was cleared above, the index can be reused
+    this.playerIndices.unregister(player);
+
+    // npcs shown on another thread while the player was quitting, no further npc can be recorded
+    Set<NPC> shownWhileQuitting = this.visibleNpcs.remove(player);
+    if (shownWhileQuitting != null) {
+      for (NPC npc : shownWhileQuitting) {
+        npc.removeSeeingPlayer(player);
+      }
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void handleChunkLoad(ChunkLoadEvent event) {
+    Chunk chunk = event.getChunk();
+    this.npcGrid.setChunkLoaded(chunk.getWorld(), chunk.getX(), chunk.getZ(), true);
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void handleChunkUnload(ChunkUnloadEvent event) {
+    Chunk chunk = event.getChunk();
+    // the npcs are hidden right away instead of waiting for the next tick of each player
+    Collection<NPC> npcs = this.npcGrid
+        .setChunkLoaded(chunk.getWorld(), chunk.getX(), chunk.getZ(), false);
+    for (NPC npc : npcs) {
+      for (Player player : npc.getSeeingPlayers()) {
+        npc.hide(player, this.plugin, PlayerNPCHideEvent.Reason.UNLOADED_CHUNK);
+      }
+    }
   }
 
   @EventHandler
   public void handleSneak(PlayerToggleSneakEvent event) {
     Player player = event.getPlayer();
+    Set<NPC> visible = this.visibleNpcs.get(player);
+    if (visible == null) {
+      return;
+    }
 
-    for (NPC npc : this.npcMap.values()) {
+    Location location = player.getLocation();
+    for (NPC npc : visible) {
       if (npc.isImitatePlayer()
-          && npc.getLocation().getWorld().equals(player.getWorld())
-          && npc.isShownFor(player)
-          && npc.getLocation().distanceSquared(player.getLocation()) <= this.actionDistance) {
+          && npc.getLocation().getWorld().equals(location.getWorld())
+          && npc.getLocation().distanceSquared(location) <= this.actionDistance) {
         npc.metadata()
             .queue(MetadataModifier.EntityMetadata.SNEAKING, event.isSneaking()).send(player);
       }
@@ -351,13 +1315,14 @@ public void handleSneak(PlayerToggleSneakEvent event) {
   public void handleClick(PlayerInteractEvent event) {
     Player player = event.getPlayer();
 
-    if (event.getAction() == Action.LEFT_CLICK_AIR
-        || event.getAction() == Action.LEFT_CLICK_BLOCK) {
-      for (NPC npc : this.npcMap.values()) {
+    Set<NPC> visible = this.visibleNpcs.get(player);
+    if (visible != null && (event.getAction() == Action.LEFT_CLICK_AIR
+        || event.getAction() == Action.LEFT_CLICK_BLOCK)) {
+      Location location = player.getLocation();
+      for (NPC npc : visible) {
         if (npc.isImitatePlayer()
-            && npc.getLocation().getWorld().equals(player.getWorld())
-            && npc.isShownFor(player)
-            && npc.getLocation().distanceSquared(player.getLocation()) <= this.actionDistance) {
+            && npc.getLocation().getWorld().equals(location.getWorld())
+            && npc.getLocation().distanceSquared(location) <= this.actionDistance) {
           npc.animation().queue(AnimationModifier.EntityAnimation.SWING_MAIN_ARM)
               .send(player);
         }
@@ -365,6 +1330,29 @@ public void handleClick(PlayerInteractEvent event) {
     }
   }
 
+  /**
+   * A npc which may be visible for a player, ranked when the amount of visible npcs is limited.
+   */
+  private static final class VisibilityCandidate {
+
+    private final NPC npc;
+    private final double distance;
+    private final boolean shown;
+    private final double score;
+
+    private VisibilityCandidate(@NotNull NPC npc, double distance, boolean shown) {
+      this.npc = npc;
+      this.distance = distance;
+      this.shown = shown;
+      // the priority of a npc is handled like being that many blocks closer
+      this.score = Math.sqrt(distance) - npc.getPriority();
+    }
+
+    private double getScore() {
+      return this.score;
+    }
+  }
+
   /**
    * A builder for a npc pool.
    *
@@ -381,6 +1369,10 @@ public static class Builder {
      * The distance in which NPCs are spawned for players
      */
     private int spawnDistance = 50;
+    /**
+     * The distance after which shown NPCs are hidden for players, {@code 0} for the spawn distance
+     */
+    private int despawnDistance = 0;
     /**
      * The distance in which NPC actions are displayed for players
      */
@@ -389,6 +1381,38 @@ public static class Builder {
      * The time in ticks after which the NPC will be removed from the players tab
      */
     private long tabListRemoveTicks = 30;
+    /**
+     * The amount of threads the visibility of the NPCs is evaluated on in every tick
+     */
+    private int tickParallelism = 1;
+    /**
+     * The distance a player has to move before the visibility of the NPCs is evaluated again
+     */
+    private double movementThreshold = 1;
+    /**
+     * The maximum amount of players evaluated per tick, {@code 0} for no limit
+     */
+    private int maxPlayersPerTick = 0;
+    /**
+     * The time in nanoseconds after which a tick stops evaluating players, {@code 0} for no limit
+     */
+    private long tickTimeBudget = 0;
+    /**
+     * The maximum amount of NPCs shown to a single player, {@code 0} for no limit
+     */
+    private int maxVisibleNpcs = 0;
+    /**
+     * The maximum amount of NPC interactions per player and second, {@code 0} for no limit
+     */
+    private int interactionRateLimit = 0;
+    /**
+     * If a show and hide event is called for every single NPC and player
+     */
+    private boolean singleVisibilityEvents = false;
+    /**
+     * If packets which are the same for every player are serialized once
+     */
+    private boolean serializedBroadcast = false;
 
     /**
      * Creates a new builder for a npc pool.
@@ -413,6 +1437,23 @@ public Builder spawnDistance(int spawnDistance) {
       return this;
     }
 
+    /**
+     * Sets the distance after which NPCs which are shown to a player are hidden again. Using a
+     * despawn distance higher than the spawn distance prevents NPCs from being shown and hidden
+     * repeatedly while a player moves along the border of the spawn distance. Must not be lower
+     * than the spawn distance, by default the spawn distance is used.
+     *
+     * @param despawnDistance the distance after which NPCs are hidden for players.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder despawnDistance(int despawnDistance) {
+      Preconditions.checkArgument(despawnDistance > 0, "Despawn distance must be more than 0");
+      this.despawnDistance = despawnDistance;
+      return this;
+    }
+
     /**
      * Sets the distance in which NPC actions are displayed for players. Must be higher than {@code
      * 0}.
@@ -440,6 +1481,147 @@ public Builder tabListRemoveTicks(long tabListRemoveTicks) {
       return this;
     }
 
+    /**
+     * Sets the amount of threads the visibility of the NPCs is evaluated on in every tick. The
+     * online players get split into partitions which are evaluated in parallel by a bounded worker
+     * pool, the resulting show, hide and rotation changes are applied afterwards. A value of
+     * {@code 1} (the default) evaluates all players on the scheduler thread of the tick.
+     *
+     * @param tickParallelism the amount of threads to use for the npc tick.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder tickParallelism(int tickParallelism) {
+      Preconditions.checkArgument(tickParallelism > 0, "Tick parallelism must be more than 0");
+      this.tickParallelism = tickParallelism;
+      return this;
+    }
+
+    /**
+     * Sets the distance a player has to move before the npc tick evaluates again which NPCs should
+     * be shown or hidden for the player. A player is always evaluated again after changing the
+     * world or when NPCs near the player were added, removed or moved. NPCs looking at the player
+     * are updated in every tick regardless of this threshold. Must not be negative, the default is
+     * {@code 1}.
+     *
+     * @param movementThreshold the distance a player has to move to be evaluated again.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder movementThreshold(double movementThreshold) {
+      Preconditions.checkArgument(movementThreshold >= 0,
+          "Movement threshold must not be negative");
+      this.movementThreshold = movementThreshold;
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount of players which are evaluated per npc tick. When more players are
+     * online, each tick continues with the player after the last one evaluated by the previous
+     * tick, rotating over all online players. A value of {@code 0} (the default) evaluates all
+     * players in every tick.
+     *
+     * @param maxPlayersPerTick the maximum amount of players to evaluate per tick.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder maxPlayersPerTick(int maxPlayersPerTick) {
+      Preconditions.checkArgument(maxPlayersPerTick >= 0,
+          "Max players per tick must not be negative");
+      this.maxPlayersPerTick = maxPlayersPerTick;
+      return this;
+    }
+
+    /**
+     * Sets the time after which a npc tick stops evaluating further players. The next tick
+     * continues with the first player which was not evaluated, rotating over all online players.
+     * At least one player is evaluated in every tick. A value of {@code 0} (the default) disables
+     * the time budget.
+     *
+     * @param tickTimeBudget the time budget of a single tick.
+     * @param unit           the unit of the given time budget.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder tickTimeBudget(long tickTimeBudget, @NotNull TimeUnit unit) {
+      Preconditions.checkArgument(tickTimeBudget >= 0, "Tick time budget must not be negative");
+      this.tickTimeBudget = unit.toNanos(tickTimeBudget);
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount of NPCs which are shown to a single player at the same time. When
+     * more NPCs are in the spawn distance of a player, the nearest NPCs are shown and the others
+     * are hidden with {@link PlayerNPCHideEvent.Reason#VISIBILITY_LIMIT}. The priority of a NPC
+     * (see {@link NPC#getPriority()}) is handled like the NPC being that many blocks closer to the
+     * player. A value of {@code 0} (the default) does not limit the amount of visible NPCs.
+     *
+     * @param maxVisibleNpcs the maximum amount of NPCs shown to a single player.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder maxVisibleNpcs(int maxVisibleNpcs) {
+      Preconditions.checkArgument(maxVisibleNpcs >= 0, "Max visible npcs must not be negative");
+      this.maxVisibleNpcs = maxVisibleNpcs;
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount of interactions per second a single player can have with NPCs.
+     * Interactions over the limit are dropped without calling a {@link PlayerNPCInteractEvent}.
+     * Repeated interactions with the same NPC in one tick count as one interaction. A value of
+     * {@code 0} (the default) does not limit the interactions.
+     *
+     * @param interactionRateLimit the maximum amount of interactions per player and second.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder interactionRateLimit(int interactionRateLimit) {
+      Preconditions.checkArgument(interactionRateLimit >= 0,
+          "Interaction rate limit must not be negative");
+      this.interactionRateLimit = interactionRateLimit;
+      return this;
+    }
+
+    /**
+     * Sets if a {@link PlayerNPCShowEvent} and a {@link PlayerNPCHideEvent} is called for every
+     * single NPC shown or hidden for a player. By default (false), only a {@link
+     * PlayerNPCBulkShowEvent} and a {@link PlayerNPCBulkHideEvent} holding all changes of a tick
+     * are called once per player and tick.
+     *
+     * @param singleVisibilityEvents if the events for every single NPC should be called.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder singleVisibilityEvents(boolean singleVisibilityEvents) {
+      this.singleVisibilityEvents = singleVisibilityEvents;
+      return this;
+    }
+
+    /**
+     * Sets if packets which are the same for every player, like spawns, rotations and animations,
+     * are serialized only once and sent as wire packets through ProtocolLib to all receiving
+     * players. The packets sent this way are not passed to the packet listeners of ProtocolLib,
+     * players using another protocol version than the server receive them as usual.
+     * Defaults to {@code false}.
+     *
+     * @param serializedBroadcast if the packets should be serialized once for all players.
+     * @return The same instance of this class, for chaining.
+     * @since 2.8.1-SNAPSHOT
+     */
+    @NotNull
+    public Builder serializedBroadcast(boolean serializedBroadcast) {
+      this.serializedBroadcast = serializedBroadcast;
+      return this;
+    }
+
     /**
      * Creates a new npc tool by the values passed to the builder.
      *
@@ -447,8 +1629,7 @@ public Builder tabListRemoveTicks(long tabListRemoveTicks) {
      */
     @NotNull
     public NPCPool build() {
-      return new NPCPool(this.plugin, this.spawnDistance, this.actionDistance,
-          this.tabListRemoveTicks);
+      return new NPCPool(this);
     }
   }
 }
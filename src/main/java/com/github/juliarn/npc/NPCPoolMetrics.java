@@ -0,0 +1,377 @@
+package com.github.juliarn.npc;
+
+import com.comphenix.protocol.PacketType;
+import com.github.juliarn.npc.event.PlayerNPCHideEvent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The runtime metrics of a {@link NPCPool}. The counters are updated from the threads doing the
+ * work without locking, reading them is meant for monitoring and does not block the npc tick.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public class NPCPoolMetrics implements NPCPoolMetricsMXBean {
+
+  /**
+   * The amount of recent ticks of which the duration is kept for the percentiles.
+   */
+  private static final int TICK_HISTORY = 1024;
+  /**
+   * The minimum time between two samples of the per second rates.
+   */
+  private static final long RATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+  /**
+   * All hide reasons, cached to avoid copying the values on each call.
+   */
+  private static final PlayerNPCHideEvent.Reason[] HIDE_REASONS = PlayerNPCHideEvent.Reason
+      .values();
+
+  /**
+   * The duration of the recent ticks in nanoseconds, used as a ring buffer.
+   */
+  private final AtomicLongArray tickDurations = new AtomicLongArray(TICK_HISTORY);
+  /**
+   * The amount of ticks recorded so far.
+   */
+  private final AtomicLong tickCount = new AtomicLong();
+  /**
+   * The amount of players evaluated so far.
+   */
+  private final LongAdder evaluatedPlayers = new LongAdder();
+  /**
+   * The amount of npcs evaluated so far.
+   */
+  private final LongAdder evaluatedNpcs = new LongAdder();
+  /**
+   * The amount of npc shows so far.
+   */
+  private final LongAdder shows = new LongAdder();
+  /**
+   * The amount of npc hides so far by reason, filled with all reasons on creation.
+   */
+  private final Map<PlayerNPCHideEvent.Reason, LongAdder> hides = new EnumMap<>(
+      PlayerNPCHideEvent.Reason.class);
+  /**
+   * The amount of sent packets by packet type.
+   */
+  private final Map<PacketType, LongAdder> sentPackets = new ConcurrentHashMap<>();
+  /**
+   * The amount of spawns which are scheduled but were not sent yet.
+   */
+  private final LongAdder pendingSpawnTasks = new LongAdder();
+
+  /**
+   * The amount of players evaluated by the last tick.
+   */
+  private volatile int lastTickEvaluatedPlayers;
+  /**
+   * The amount of npcs evaluated by the last tick.
+   */
+  private volatile int lastTickEvaluatedNpcs;
+
+  /**
+   * The {@link System#nanoTime()} of the last rate sample, only accessed by the tick thread.
+   */
+  private long lastRateSample = System.nanoTime();
+  /**
+   * The show count at the last rate sample, only accessed by the tick thread.
+   */
+  private long lastShows;
+  /**
+   * The hide count of each reason at the last rate sample, only accessed by the tick thread.
+   */
+  private final long[] lastHides = new long[HIDE_REASONS.length];
+  /**
+   * The shows per second measured by the last rate sample.
+   */
+  private volatile double showsPerSecond;
+  /**
+   * The hides per second of each reason measured by the last rate sample.
+   */
+  private volatile double[] hidesPerSecond = new double[HIDE_REASONS.length];
+
+  /**
+   * Creates new, empty metrics.
+   */
+  NPCPoolMetrics() {
+    for (PlayerNPCHideEvent.Reason reason : HIDE_REASONS) {
+      this.hides.put(reason, new LongAdder());
+    }
+  }
+
+  /**
+   * Records a finished npc tick and samples the per second rates if due. Must only be called by
+   * one thread at a time.
+   *
+   * @param durationNanos    the duration of the tick in nanoseconds.
+   * @param evaluatedPlayers the amount of players evaluated by the tick.
+   * @param evaluatedNpcs    the amount of npcs evaluated by the tick, summed up over all players.
+   */
+  void recordTick(long durationNanos, int evaluatedPlayers, int evaluatedNpcs) {
+    long tick = this.tickCount.getAndIncrement();
+    this.tickDurations.set((int) (tick % TICK_HISTORY), durationNanos);
+
+    this.lastTickEvaluatedPlayers = evaluatedPlayers;
+    this.lastTickEvaluatedNpcs = evaluatedNpcs;
+    this.evaluatedPlayers.add(evaluatedPlayers);
+    this.evaluatedNpcs.add(evaluatedNpcs);
+
+    long now = System.nanoTime();
+    long elapsed = now - this.lastRateSample;
+    if (elapsed >= RATE_INTERVAL) {
+      double seconds = (double) elapsed / TimeUnit.SECONDS.toNanos(1);
+
+      long shows = this.shows.sum();
+      this.showsPerSecond = (shows - this.lastShows) / seconds;
+      this.lastShows = shows;
+
+      double[] hidesPerSecond = new double[HIDE_REASONS.length];
+      for (int i = 0; i < HIDE_REASONS.length; i++) {
+        long hides = this.hides.get(HIDE_REASONS[i]).sum();
+        hidesPerSecond[i] = (hides - this.lastHides[i]) / seconds;
+        this.lastHides[i] = hides;
+      }
+      this.hidesPerSecond = hidesPerSecond;
+      this.lastRateSample = now;
+    }
+  }
+
+  /**
+   * Records that a npc was shown to a player.
+   */
+  @ApiStatus.Internal
+  public void recordShow() {
+    this.shows.increment();
+  }
+
+  /**
+   * Records that a npc was hidden from a player.
+   *
+   * @param reason the reason why the npc was hidden.
+   */
+  @ApiStatus.Internal
+  public void recordHide(@NotNull PlayerNPCHideEvent.Reason reason) {
+    this.hides.get(reason).increment();
+  }
+
+  /**
+   * Records that a packet was sent to a player.
+   *
+   * @param packetType the type of the sent packet.
+   */
+  @ApiStatus.Internal
+  public void recordPacket(@NotNull PacketType packetType) {
+    this.recordPacket(packetType, 1);
+  }
+
+  /**
+   * Records that a packet of the given type was sent to the given amount of players.
+   *
+   * @param packetType the type of the sent packet.
+   * @param amount     the amount of players the packet was sent to.
+   */
+  @ApiStatus.Internal
+  public void recordPacket(@NotNull PacketType packetType, int amount) {
+    this.sentPackets.computeIfAbsent(packetType, $ -> new LongAdder()).add(amount);
+  }
+
+  /**
+   * Records that a spawn was scheduled or that a scheduled spawn was run.
+   *
+   * @param scheduled {@code true} if a spawn was scheduled, {@code false} if it was run.
+   */
+  @ApiStatus.Internal
+  public void recordPendingSpawn(boolean scheduled) {
+    if (scheduled) {
+      this.pendingSpawnTasks.increment();
+    } else {
+      this.pendingSpawnTasks.decrement();
+    }
+  }
+
+  /**
+   * Get the given percentile of the duration of the recent npc ticks.
+   *
+   * @param percentile the percentile to get, between {@code 0} and {@code 100}.
+   * @return the tick duration percentile in milliseconds, {@code 0} if no tick was run yet.
+   */
+  public double getTickDurationPercentile(double percentile) {
+    int recorded = (int) Math.min(this.tickCount.get(), TICK_HISTORY);
+    if (recorded == 0) {
+      return 0;
+    }
+
+    long[] durations = new long[recorded];
+    for (int i = 0; i < recorded; i++) {
+      durations[i] = this.tickDurations.get(i);
+    }
+    Arrays.sort(durations);
+
+    // nearest rank
+    int rank = (int) Math.ceil(Math.max(0, Math.min(percentile, 100)) / 100 * recorded);
+    return durations[Math.max(rank, 1) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Get the amount of times a npc was hidden from a player so far for the given reason.
+   *
+   * @param reason the reason of the hides.
+   * @return the amount of npc hides so far for the reason.
+   */
+  public long getHideCount(@NotNull PlayerNPCHideEvent.Reason reason) {
+    return this.hides.get(reason).sum();
+  }
+
+  /**
+   * Get the amount of packets of the given type sent to players so far.
+   *
+   * @param packetType the type of the packets.
+   * @return the amount of sent packets of the type.
+   */
+  public long getSentPackets(@NotNull PacketType packetType) {
+    LongAdder sent = this.sentPackets.get(packetType);
+    return sent == null ? 0 : sent.sum();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTickCount() {
+    return this.tickCount.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getTickDurationP50Millis() {
+    return this.getTickDurationPercentile(50);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getTickDurationP95Millis() {
+    return this.getTickDurationPercentile(95);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getTickDurationP99Millis() {
+    return this.getTickDurationPercentile(99);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getTickDurationMaxMillis() {
+    return this.getTickDurationPercentile(100);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastTickEvaluatedPlayers() {
+    return this.lastTickEvaluatedPlayers;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastTickEvaluatedNpcs() {
+    return this.lastTickEvaluatedNpcs;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getEvaluatedPlayers() {
+    return this.evaluatedPlayers.sum();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getEvaluatedNpcs() {
+    return this.evaluatedNpcs.sum();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getShowCount() {
+    return this.shows.sum();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getShowsPerSecond() {
+    return this.showsPerSecond;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Long> getHideCounts() {
+    Map<String, Long> hideCounts = new HashMap<>();
+    for (PlayerNPCHideEvent.Reason reason : HIDE_REASONS) {
+      hideCounts.put(reason.name(), this.hides.get(reason).sum());
+    }
+    return Collections.unmodifiableMap(hideCounts);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Double> getHidesPerSecond() {
+    double[] hidesPerSecond = this.hidesPerSecond;
+    Map<String, Double> rates = new HashMap<>();
+    for (int i = 0; i < HIDE_REASONS.length; i++) {
+      rates.put(HIDE_REASONS[i].name(), hidesPerSecond[i]);
+    }
+    return Collections.unmodifiableMap(rates);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Long> getSentPackets() {
+    Map<String, Long> sentPackets = new HashMap<>();
+    this.sentPackets.forEach((type, sent) -> sentPackets.put(type.name(), sent.sum()));
+    return Collections.unmodifiableMap(sentPackets);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getPendingSpawnTasks() {
+    return this.pendingSpawnTasks.sum();
+  }
+}
@@ -0,0 +1,120 @@
+package com.github.juliarn.npc;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link NPCPoolMetrics}, registered as a JMX MXBean for every
+ * {@link NPCPool}.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public interface NPCPoolMetricsMXBean {
+
+  /**
+   * Get the amount of npc ticks run so far.
+   *
+   * @return the amount of npc ticks run so far.
+   */
+  long getTickCount();
+
+  /**
+   * Get the median duration of the recent npc ticks.
+   *
+   * @return the median tick duration in milliseconds.
+   */
+  double getTickDurationP50Millis();
+
+  /**
+   * Get the 95th percentile of the duration of the recent npc ticks.
+   *
+   * @return the 95th percentile of the tick duration in milliseconds.
+   */
+  double getTickDurationP95Millis();
+
+  /**
+   * Get the 99th percentile of the duration of the recent npc ticks.
+   *
+   * @return the 99th percentile of the tick duration in milliseconds.
+   */
+  double getTickDurationP99Millis();
+
+  /**
+   * Get the maximum duration of the recent npc ticks.
+   *
+   * @return the maximum tick duration in milliseconds.
+   */
+  double getTickDurationMaxMillis();
+
+  /**
+   * Get the amount of players evaluated by the last npc tick.
+   *
+   * @return the amount of players evaluated by the last tick.
+   */
+  int getLastTickEvaluatedPlayers();
+
+  /**
+   * Get the amount of npcs evaluated by the last npc tick, summed up over all players.
+   *
+   * @return the amount of npcs evaluated by the last tick.
+   */
+  int getLastTickEvaluatedNpcs();
+
+  /**
+   * Get the amount of players evaluated by all npc ticks so far.
+   *
+   * @return the amount of players evaluated so far.
+   */
+  long getEvaluatedPlayers();
+
+  /**
+   * Get the amount of npcs evaluated by all npc ticks so far, summed up over all players.
+   *
+   * @return the amount of npcs evaluated so far.
+   */
+  long getEvaluatedNpcs();
+
+  /**
+   * Get the amount of times a npc was shown to a player so far.
+   *
+   * @return the amount of npc shows so far.
+   */
+  long getShowCount();
+
+  /**
+   * Get the amount of times a npc was shown to a player per second, measured over the last
+   * second.
+   *
+   * @return the amount of npc shows per second.
+   */
+  double getShowsPerSecond();
+
+  /**
+   * Get the amount of times a npc was hidden from a player so far, by the name of the hide
+   * reason.
+   *
+   * @return the amount of npc hides so far by reason.
+   */
+  Map<String, Long> getHideCounts();
+
+  /**
+   * Get the amount of times a npc was hidden from a player per second by the name of the hide
+   * reason, measured over the last second.
+   *
+   * @return the amount of npc hides per second by reason.
+   */
+  Map<String, Double> getHidesPerSecond();
+
+  /**
+   * Get the amount of packets sent to players so far, by the name of the packet type.
+   *
+   * @return the amount of sent packets by packet type.
+   */
+  Map<String, Long> getSentPackets();
+
+  /**
+   * Get the amount of spawns which are scheduled but were not sent to the player yet.
+   *
+   * @return the amount of pending delayed spawn tasks.
+   */
+  long getPendingSpawnTasks();
+}
@@ -0,0 +1,116 @@
+package com.github.juliarn.npc;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Assigns a small index to every online player of a pool, which is used to keep per player state
+ * in arrays and bitsets instead of maps keyed by players. A player gets the lowest free index when
+ * joining, the index is freed when the player quits and handed out to the next joining player, so
+ * the indices stay dense. All per player state of the npcs of the pool is cleared before the index
+ * of a quitting player is freed.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public final class PlayerIndexRegistry {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * The index of every registered player.
+   */
+  private final Map<Player, Integer> indices = new ConcurrentHashMap<>();
+  /**
+   * The indices currently assigned to a player.
+   */
+  private final BitSet usedIndices = new BitSet();
+
+  /**
+   * The registered players by their index, replaced by a larger copy when full.
+   */
+  private volatile AtomicReferenceArray<Player> players =
+      new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+  PlayerIndexRegistry() {
+  }
+
+  /**
+   * Get the index of the given player.
+   *
+   * @param player the player to get the index of.
+   * @return the index of the player, {@code -1} if the player is not online.
+   */
+  public int getIndex(@NotNull Player player) {
+    Integer index = this.indices.get(player);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Get the player which currently has the given index.
+   *
+   * @param index the index of the player.
+   * @return the player with the index, null if no player has the index.
+   */
+  @Nullable
+  public Player getPlayer(int index) {
+    AtomicReferenceArray<Player> players = this.players;
+    return index >= 0 && index < players.length() ? players.get(index) : null;
+  }
+
+  /**
+   * Get the upper bound of the indices assigned so far, arrays indexed by the player index need at
+   * least this size to hold the state of every player.
+   *
+   * @return the upper bound of the assigned indices, exclusive.
+   */
+  public int getCapacity() {
+    return this.players.length();
+  }
+
+  /**
+   * Assigns the lowest free index to the given player, if the player has no index yet.
+   *
+   * @param player the player to register.
+   * @return the index of the player.
+   */
+  synchronized int register(@NotNull Player player) {
+    Integer existing = this.indices.get(player);
+    if (existing != null) {
+      return existing;
+    }
+
+    int index = this.usedIndices.nextClearBit(0);
+    this.usedIndices.set(index);
+
+    AtomicReferenceArray<Player> players = this.players;
+    if (index >= players.length()) {
+      AtomicReferenceArray<Player> grown = new AtomicReferenceArray<>(players.length() << 1);
+      for (int i = 0; i < players.length(); i++) {
+        grown.set(i, players.get(i));
+      }
+      this.players = players = grown;
+    }
+
+    players.set(index, player);
+    this.indices.put(player, index);
+    return index;
+  }
+
+  /**
+   * Frees the index of the given player so that it can be assigned to another player.
+   *
+   * @param player the player to unregister.
+   */
+  synchronized void unregister(@NotNull Player player) {
+    Integer index = this.indices.remove(player);
+    if (index != null) {
+      this.players.set(index, null);
+      this.usedIndices.clear(index);
+    }
+  }
+}
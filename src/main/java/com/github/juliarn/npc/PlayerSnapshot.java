@@ -0,0 +1,233 @@
+package com.github.juliarn.npc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The positions of all online players, captured on the main thread and read by the async npc
+ * tick. The data is stored in primitive arrays which are reused between captures, a snapshot is
+ * never modified while a reader holds it.
+ */
+final class PlayerSnapshot {
+
+  /**
+   * The reader count while the snapshot is being written by the main thread.
+   */
+  private static final int WRITING = -1;
+
+  /**
+   * The amount of readers currently holding this snapshot or {@link #WRITING}.
+   */
+  private final AtomicInteger readers = new AtomicInteger();
+
+  /**
+   * The number of the capture which filled this snapshot, increasing with each capture.
+   */
+  long sequence;
+  /**
+   * The amount of players in this snapshot.
+   */
+  int size;
+  /**
+   * The captured players.
+   */
+  Player[] players = new Player[0];
+  /**
+   * The world of each player.
+   */
+  World[] worlds = new World[0];
+  /**
+   * The x, y and z coordinate of each player, three entries per player.
+   */
+  double[] positions = new double[0];
+  /**
+   * The yaw and pitch of each player, two entries per player.
+   */
+  float[] rotations = new float[0];
+  /**
+   * The view distance in chunks of each player.
+   */
+  int[] viewDistances = new int[0];
+
+  /**
+   * Tries to acquire this snapshot for reading.
+   *
+   * @return if this snapshot was acquired and may be read until {@link #release()} is called.
+   */
+  boolean tryAcquire() {
+    int current;
+    do {
+      current = this.readers.get();
+      if (current == WRITING) {
+        return false;
+      }
+    } while (!this.readers.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  /**
+   * Releases this snapshot after reading.
+   */
+  void release() {
+    this.readers.decrementAndGet();
+  }
+
+  /**
+   * Get the x coordinate of the player at the given {@code index}.
+   *
+   * @param index the index of the player.
+   * @return the x coordinate of the player.
+   */
+  double x(int index) {
+    return this.positions[index * 3];
+  }
+
+  /**
+   * Get the y coordinate of the player at the given {@code index}.
+   *
+   * @param index the index of the player.
+   * @return the y coordinate of the player.
+   */
+  double y(int index) {
+    return this.positions[index * 3 + 1];
+  }
+
+  /**
+   * Get the z coordinate of the player at the given {@code index}.
+   *
+   * @param index the index of the player.
+   * @return the z coordinate of the player.
+   */
+  double z(int index) {
+    return this.positions[index * 3 + 2];
+  }
+
+  /**
+   * Captures the current state of all online players into this snapshot. Must be called on the
+   * main thread.
+   *
+   * @param location a location which is reused to read the location of the players.
+   */
+  private void capture(@NotNull Location location) {
+    Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
+    this.ensureCapacity(onlinePlayers.size());
+
+    int viewDistance = Bukkit.getViewDistance();
+    int index = 0;
+    for (Player player : onlinePlayers) {
+      if (index == this.players.length) {
+        break;
+      }
+
+      player.getLocation(location);
+      this.players[index] = player;
+      this.worlds[index] = location.getWorld();
+      this.positions[index * 3] = location.getX();
+      this.positions[index * 3 + 1] = location.getY();
+      this.positions[index * 3 + 2] = location.getZ();
+      this.rotations[index * 2] = location.getYaw();
+      this.rotations[index * 2 + 1] = location.getPitch();
+      // the api only exposes the view distance of the server
+      this.viewDistances[index] = viewDistance;
+      index++;
+    }
+
+    // drop the references to players which are no longer captured
+    Arrays.fill(this.players, index, this.size, null);
+    Arrays.fill(this.worlds, index, this.size, null);
+    this.size = index;
+  }
+
+  /**
+   * Grows the arrays of this snapshot to hold at least the given amount of players.
+   *
+   * @param capacity the amount of players to hold.
+   */
+  private void ensureCapacity(int capacity) {
+    if (this.players.length < capacity) {
+      int newCapacity = Math.max(capacity, this.players.length * 2);
+      this.players = Arrays.copyOf(this.players, newCapacity);
+      this.worlds = Arrays.copyOf(this.worlds, newCapacity);
+      this.positions = Arrays.copyOf(this.positions, newCapacity * 3);
+      this.rotations = Arrays.copyOf(this.rotations, newCapacity * 2);
+      this.viewDistances = Arrays.copyOf(this.viewDistances, newCapacity);
+    }
+  }
+
+  /**
+   * A double buffer of player snapshots. The main thread captures into the back snapshot and
+   * publishes it as the front snapshot afterwards, readers always get the latest published one.
+   */
+  static final class Buffer {
+
+    /**
+     * A location which is reused to read the location of the players.
+     */
+    private final Location scratchLocation = new Location(null, 0D, 0D, 0D);
+
+    /**
+     * The latest published snapshot.
+     */
+    private volatile PlayerSnapshot front = new PlayerSnapshot();
+    /**
+     * The snapshot which will be captured into next.
+     */
+    private PlayerSnapshot back = new PlayerSnapshot();
+    /**
+     * The amount of captures made so far.
+     */
+    private long captures;
+
+    /**
+     * Captures the current state of all online players and publishes it. Must be called on the
+     * main thread.
+     */
+    void capture() {
+      PlayerSnapshot target = this.back;
+      // the back snapshot is still read by a slow tick, use a fresh one instead
+      if (!target.readers.compareAndSet(0, WRITING)) {
+        target = new PlayerSnapshot();
+        target.readers.set(WRITING);
+      }
+
+      target.capture(this.scratchLocation);
+      target.sequence = ++this.captures;
+      target.readers.set(0);
+
+      this.back = this.front;
+      this.front = target;
+    }
+
+    /**
+     * Get the sequence of the latest published snapshot. When called on the main thread, all
+     * snapshots up to this sequence were captured before the call.
+     *
+     * @return the sequence of the latest published snapshot.
+     */
+    long latestSequence() {
+      return this.front.sequence;
+    }
+
+    /**
+     * Acquires the latest published snapshot for reading. The snapshot must be released using
+     * {@link PlayerSnapshot#release()} after reading.
+     *
+     * @return the latest published snapshot.
+     */
+    @NotNull
+    PlayerSnapshot acquire() {
+      while (true) {
+        PlayerSnapshot snapshot = this.front;
+        if (snapshot.tryAcquire()) {
+          return snapshot;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.juliarn.npc;
+
+import com.github.juliarn.npc.event.PlayerNPCHideEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The visibility decisions made by one npc tick for one player. The decisions are computed
+ * without changing any npc state, which allows them to be computed in parallel for all players and
+ * to be applied afterwards.
+ */
+final class PlayerTickResult {
+
+  /**
+   * The player the decisions were made for.
+   */
+  final Player player;
+  /**
+   * The world of the player the decisions were based on.
+   */
+  final World world;
+  /**
+   * The x coordinate of the player the decisions were based on.
+   */
+  final double x;
+  /**
+   * The y coordinate of the player the decisions were based on.
+   */
+  final double y;
+  /**
+   * The z coordinate of the player the decisions were based on.
+   */
+  final double z;
+  /**
+   * All npcs in the grid cells around the player.
+   */
+  Set<NPC> nearby = Collections.emptySet();
+  /**
+   * The version of the tick state of the player the decisions were based on.
+   */
+  long stateVersion;
+  /**
+   * The npcs which should be shown to the player.
+   */
+  final List<NPC> shows = new ArrayList<>();
+  /**
+   * The npcs which should be hidden from the player.
+   */
+  final List<NPC> hides = new ArrayList<>();
+  /**
+   * The reason for each entry in {@link #hides}, at the same index.
+   */
+  final List<PlayerNPCHideEvent.Reason> hideReasons = new ArrayList<>();
+  /**
+   * The npcs which should look at the player.
+   */
+  final List<NPC> lookAts = new ArrayList<>();
+
+  /**
+   * Creates a new, empty result.
+   *
+   * @param player the player the decisions are made for.
+   * @param world  the world of the player the decisions are based on.
+   * @param x      the x coordinate of the player the decisions are based on.
+   * @param y      the y coordinate of the player the decisions are based on.
+   * @param z      the z coordinate of the player the decisions are based on.
+   */
+  PlayerTickResult(@NotNull Player player, @Nullable World world, double x, double y, double z) {
+    this.player = player;
+    this.world = world;
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  /**
+   * Records that the given {@code npc} should be hidden from the player.
+   *
+   * @param npc    the npc to hide.
+   * @param reason the reason why the npc gets hidden.
+   */
+  void hide(@NotNull NPC npc, @NotNull PlayerNPCHideEvent.Reason reason) {
+    this.hides.add(npc);
+    this.hideReasons.add(reason);
+  }
+}
@@ -0,0 +1,217 @@
+package com.github.juliarn.npc;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The state of the last full visibility evaluation the npc tick made for a player. Used to skip
+ * the evaluation of players which did not move and whose surrounding npcs did not change.
+ * Evaluations of the same player must be synchronized on the state.
+ */
+final class PlayerTickState {
+
+  /**
+   * If the next tick must evaluate the player, regardless of the movement of the player.
+   */
+  private final AtomicBoolean invalidated = new AtomicBoolean(true);
+  /**
+   * The index of the player in the player index registry of the pool.
+   */
+  private final int playerIndex;
+  /**
+   * If the player quit, set by the main thread so that other threads don't need to ask the player.
+   */
+  private volatile boolean quit;
+
+  /**
+   * The amount of full evaluations of the player so far.
+   */
+  private volatile long version;
+  /**
+   * The sequence of the last player snapshot which was captured before the player was evaluated
+   * outside of the npc tick.
+   */
+  private volatile long staleSnapshots;
+
+  /**
+   * The world of the player at the last evaluation.
+   */
+  private World world;
+  /**
+   * The x coordinate of the player at the last evaluation.
+   */
+  private double x;
+  /**
+   * The y coordinate of the player at the last evaluation.
+   */
+  private double y;
+  /**
+   * The z coordinate of the player at the last evaluation.
+   */
+  private double z;
+  /**
+   * The modification count of the npc grid at the last evaluation.
+   */
+  private volatile long gridModificationCount;
+  /**
+   * The npcs in the grid cells around the player at the last evaluation.
+   */
+  private Set<NPC> nearby = Collections.emptySet();
+
+  /**
+   * Creates a new state for the player with the given index.
+   *
+   * @param playerIndex the index of the player in the player index registry of the pool.
+   */
+  PlayerTickState(int playerIndex) {
+    this.playerIndex = playerIndex;
+  }
+
+  /**
+   * Get the index of the player in the player index registry of the pool, which is passed along
+   * instead of looking it up for every npc.
+   *
+   * @return the player index of the player.
+   */
+  int getPlayerIndex() {
+    return this.playerIndex;
+  }
+
+  /**
+   * Marks the player as quit, called on the main thread when the player leaves the server.
+   */
+  void markQuit() {
+    this.quit = true;
+  }
+
+  /**
+   * Get if the player quit. Unlike {@link org.bukkit.entity.Player#isOnline()} this can be called
+   * from any thread.
+   *
+   * @return if the player quit.
+   */
+  boolean hasQuit() {
+    return this.quit;
+  }
+
+  /**
+   * Forces the next tick to evaluate the player, for example because the exclusion of the player
+   * from a npc changed.
+   */
+  void invalidate() {
+    this.invalidated.set(true);
+  }
+
+  /**
+   * Marks all player snapshots up to the given sequence as outdated for the player, because the
+   * player was evaluated outside of the npc tick with a newer position.
+   *
+   * @param sequence the sequence of the latest snapshot captured before the evaluation.
+   */
+  void skipSnapshotsUntil(long sequence) {
+    this.staleSnapshots = sequence;
+  }
+
+  /**
+   * Get if the player snapshot with the given sequence is outdated for the player.
+   *
+   * @param sequence the sequence of the snapshot.
+   * @return if the snapshot must not be used to evaluate the player.
+   */
+  boolean isStale(long sequence) {
+    return sequence <= this.staleSnapshots;
+  }
+
+  /**
+   * Get the amount of full evaluations of the player so far. Decisions based on an older version
+   * are outdated and must not be applied.
+   *
+   * @return the current version of this state.
+   */
+  long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Get the modification count of the npc grid at the last evaluation, the modifications made
+   * before are already known to this state.
+   *
+   * @return the modification count of the grid at the last evaluation.
+   */
+  long getGridModificationCount() {
+    return this.gridModificationCount;
+  }
+
+  /**
+   * Get if the player has to be evaluated again, resetting the invalidation of this state.
+   *
+   * @param grid              the npc grid of the pool.
+   * @param world             the current world of the player.
+   * @param x                 the current x coordinate of the player.
+   * @param y                 the current y coordinate of the player.
+   * @param z                 the current z coordinate of the player.
+   * @param radius            the radius around the player in which npcs get evaluated.
+   * @param movementThreshold the squared distance the player has to move to be evaluated again.
+   * @return if the player has to be evaluated again.
+   */
+  boolean needsEvaluation(
+      @NotNull NPCGrid grid,
+      @Nullable World world,
+      double x,
+      double y,
+      double z,
+      double radius,
+      double movementThreshold
+  ) {
+    if (this.invalidated.getAndSet(false) || this.world != world) {
+      return true;
+    }
+
+    double movedX = x - this.x;
+    double movedY = y - this.y;
+    double movedZ = z - this.z;
+    return movedX * movedX + movedY * movedY + movedZ * movedZ > movementThreshold
+        || grid.isModifiedSince(world, x, z, radius, this.gridModificationCount);
+  }
+
+  /**
+   * Records a full evaluation of the player.
+   *
+   * @param world                 the world of the player during the evaluation.
+   * @param x                     the x coordinate of the player during the evaluation.
+   * @param y                     the y coordinate of the player during the evaluation.
+   * @param z                     the z coordinate of the player during the evaluation.
+   * @param gridModificationCount the modification count of the grid before the evaluation.
+   * @param nearby                the npcs in the grid cells around the player.
+   */
+  void update(
+      @Nullable World world,
+      double x,
+      double y,
+      double z,
+      long gridModificationCount,
+      @NotNull Set<NPC> nearby
+  ) {
+    this.world = world;
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.gridModificationCount = gridModificationCount;
+    this.nearby = nearby;
+    this.version++;
+  }
+
+  /**
+   * Get the npcs in the grid cells around the player at the last evaluation.
+   *
+   * @return the npcs around the player at the last evaluation.
+   */
+  @NotNull
+  Set<NPC> getNearby() {
+    return this.nearby;
+  }
+}
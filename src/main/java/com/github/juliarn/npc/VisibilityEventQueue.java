@@ -0,0 +1,150 @@
+package com.github.juliarn.npc;
+
+import com.github.juliarn.npc.event.PlayerNPCBulkHideEvent;
+import com.github.juliarn.npc.event.PlayerNPCBulkShowEvent;
+import com.github.juliarn.npc.event.PlayerNPCHideEvent;
+import com.github.juliarn.npc.event.PlayerNPCShowEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects the npcs shown and hidden for players and calls one {@link PlayerNPCBulkShowEvent} and
+ * one {@link PlayerNPCBulkHideEvent} per player for them in a single task on the main thread per
+ * tick. The bulk events only carry the net changes, a npc hidden and shown again before the events
+ * are called is in neither of them. The events for every single npc and player are only called if
+ * enabled on the pool.
+ */
+final class VisibilityEventQueue {
+
+  private final Plugin plugin;
+  /**
+   * If a {@link PlayerNPCShowEvent} and {@link PlayerNPCHideEvent} is called for every change.
+   */
+  private final boolean singleEvents;
+
+  /**
+   * The changes since the last drain by the player.
+   */
+  private final Map<Player, Changes> pending = new ConcurrentHashMap<>();
+  /**
+   * If a task draining the pending changes is scheduled.
+   */
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  VisibilityEventQueue(@NotNull Plugin plugin, boolean singleEvents) {
+    this.plugin = plugin;
+    this.singleEvents = singleEvents;
+  }
+
+  /**
+   * Queues the events for the given npc being shown for the given player. Must be called on the
+   * main thread after the npc was spawned.
+   *
+   * @param player the player the npc was shown for.
+   * @param npc    the npc which was shown.
+   */
+  void shown(@NotNull Player player, @NotNull NPC npc) {
+    if (this.singleEvents) {
+      Bukkit.getPluginManager().callEvent(new PlayerNPCShowEvent(player, npc));
+    }
+
+    this.pending.compute(player, ($, changes) -> {
+      if (changes == null) {
+        changes = new Changes();
+      }
+      // the npc was hidden and is now shown again, which is no change
+      if (changes.hidden.remove(npc) == null) {
+        changes.shown.add(npc);
+      }
+      return changes.isEmpty() ? null : changes;
+    });
+    this.scheduleDrain();
+  }
+
+  /**
+   * Queues the events for the given npc being hidden for the given player. Can be called from any
+   * thread.
+   *
+   * @param player the player the npc was hidden for.
+   * @param npc    the npc which was hidden.
+   * @param reason the reason why the npc was hidden.
+   */
+  void hidden(
+      @NotNull Player player,
+      @NotNull NPC npc,
+      @NotNull PlayerNPCHideEvent.Reason reason
+  ) {
+    if (this.singleEvents) {
+      Bukkit.getScheduler().runTask(
+          this.plugin,
+          () -> Bukkit.getPluginManager().callEvent(new PlayerNPCHideEvent(player, npc, reason)));
+    }
+
+    this.pending.compute(player, ($, changes) -> {
+      if (changes == null) {
+        changes = new Changes();
+      }
+      // the npc was shown and is now hidden again, which is no change
+      if (!changes.shown.remove(npc)) {
+        changes.hidden.put(npc, reason);
+      }
+      return changes.isEmpty() ? null : changes;
+    });
+    this.scheduleDrain();
+  }
+
+  /**
+   * Schedules a task draining the pending changes, unless one is already scheduled.
+   */
+  private void scheduleDrain() {
+    if (this.drainScheduled.compareAndSet(false, true)) {
+      Bukkit.getScheduler().runTask(this.plugin, this::drain);
+    }
+  }
+
+  /**
+   * Calls the bulk events for all pending changes. Must be called on the main thread.
+   */
+  private void drain() {
+    // changes made from now on need another drain
+    this.drainScheduled.set(false);
+
+    for (Player player : this.pending.keySet()) {
+      Changes changes = this.pending.remove(player);
+      if (changes == null) {
+        continue;
+      }
+
+      if (!changes.hidden.isEmpty()) {
+        Bukkit.getPluginManager().callEvent(new PlayerNPCBulkHideEvent(player, changes.hidden));
+      }
+      if (!changes.shown.isEmpty()) {
+        Bukkit.getPluginManager().callEvent(
+            new PlayerNPCBulkShowEvent(player, new ArrayList<>(changes.shown)));
+      }
+    }
+  }
+
+  /**
+   * The npcs shown and hidden for a player since the last drain. Only modified while holding the
+   * entry in the pending map.
+   */
+  private static final class Changes {
+
+    private final Set<NPC> shown = new LinkedHashSet<>();
+    private final Map<NPC, PlayerNPCHideEvent.Reason> hidden = new LinkedHashMap<>();
+
+    private boolean isEmpty() {
+      return this.shown.isEmpty() && this.hidden.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.juliarn.npc.event;
+
+import com.github.juliarn.npc.NPC;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+/**
+ * An event fired once per tick and player holding all npcs which were hidden for the player since
+ * the last event, together with the reason why each of them was hidden.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public class PlayerNPCBulkHideEvent extends PlayerEvent {
+
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+
+  /**
+   * The npcs the player is no longer seeing and why they were hidden.
+   */
+  private final Map<NPC, PlayerNPCHideEvent.Reason> reasons;
+
+  /**
+   * Constructs a new event instance.
+   *
+   * @param who     The player who is no longer seeing the npcs
+   * @param reasons The npcs the player is no longer seeing and why they were hidden
+   */
+  public PlayerNPCBulkHideEvent(Player who, Map<NPC, PlayerNPCHideEvent.Reason> reasons) {
+    super(who);
+    this.reasons = Collections.unmodifiableMap(reasons);
+  }
+
+  /**
+   * Get the handlers for this event.
+   *
+   * @return the handlers for this event.
+   */
+  @NotNull
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  /**
+   * @return The npcs the player is no longer seeing, in the order they were hidden
+   */
+  @NotNull
+  @Unmodifiable
+  public Set<NPC> getNPCs() {
+    return this.reasons.keySet();
+  }
+
+  /**
+   * @param npc The npc to get the reason for
+   * @return The reason why the npc was hidden, null if it was not hidden
+   */
+  @Nullable
+  public PlayerNPCHideEvent.Reason getReason(@NotNull NPC npc) {
+    return this.reasons.get(npc);
+  }
+
+  /**
+   * @return The npcs the player is no longer seeing and why they were hidden
+   */
+  @NotNull
+  @Unmodifiable
+  public Map<NPC, PlayerNPCHideEvent.Reason> getReasons() {
+    return this.reasons;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NotNull
+  @Override
+  public HandlerList getHandlers() {
+    return HANDLER_LIST;
+  }
+}
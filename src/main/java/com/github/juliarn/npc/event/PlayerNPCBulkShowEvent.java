@@ -0,0 +1,65 @@
+package com.github.juliarn.npc.event;
+
+import com.github.juliarn.npc.NPC;
+import java.util.Collection;
+import java.util.Collections;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+/**
+ * An event fired once per tick and player holding all npcs which were shown for the player since
+ * the last event.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public class PlayerNPCBulkShowEvent extends PlayerEvent {
+
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+
+  /**
+   * The npcs the player is now seeing.
+   */
+  private final Collection<NPC> npcs;
+
+  /**
+   * Constructs a new event instance.
+   *
+   * @param who  The player who is now seeing the npcs
+   * @param npcs The npcs the player is now seeing, in the order they were shown
+   */
+  public PlayerNPCBulkShowEvent(Player who, Collection<NPC> npcs) {
+    super(who);
+    this.npcs = Collections.unmodifiableCollection(npcs);
+  }
+
+  /**
+   * Get the handlers for this event.
+   *
+   * @return the handlers for this event.
+   */
+  @NotNull
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  /**
+   * @return The npcs the player is now seeing, in the order they were shown
+   */
+  @NotNull
+  @Unmodifiable
+  public Collection<NPC> getNPCs() {
+    return this.npcs;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NotNull
+  @Override
+  public HandlerList getHandlers() {
+    return HANDLER_LIST;
+  }
+}
@@ -79,6 +79,12 @@ public enum Reason {
     /**
      * The player seeing the npc respawned.
      */
-    RESPAWNED
+    RESPAWNED,
+    /**
+     * The player reached the maximum amount of visible npcs and other npcs have a higher priority.
+     *
+     * @since 2.8.1-SNAPSHOT
+     */
+    VISIBILITY_LIMIT
   }
 }
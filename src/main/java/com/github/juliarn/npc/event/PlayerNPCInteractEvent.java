@@ -184,7 +184,8 @@ public enum EntityUseAction {
      * @throws IllegalArgumentException When no association was found.
      */
     @NotNull
-    private static EntityUseAction fromHandle(@NotNull EnumWrappers.EntityUseAction action) {
+    @ApiStatus.Internal
+    public static EntityUseAction fromHandle(@NotNull EnumWrappers.EntityUseAction action) {
       for (EntityUseAction value : VALUES) {
         if (value.handle == action) {
           return value;
@@ -232,7 +233,8 @@ public enum Hand {
      * @throws IllegalArgumentException When no association was found.
      */
     @NotNull
-    private static Hand fromHandle(@NotNull EnumWrappers.Hand hand) {
+    @ApiStatus.Internal
+    public static Hand fromHandle(@NotNull EnumWrappers.Hand hand) {
       for (Hand value : VALUES) {
         if (value.handle == hand) {
           return value;
@@ -41,7 +41,7 @@ public AnimationModifier queue(@NotNull EntityAnimation entityAnimation) {
    */
   @NotNull
   public AnimationModifier queue(int animationId) {
-    super.queueInstantly((targetNpc, target) -> {
+    super.queueTemplate(PacketTemplates.Kind.ANIMATION, animationId, (targetNpc, target) -> {
       PacketContainer container = new PacketContainer(Server.ANIMATION);
       container.getIntegers()
           .write(0, targetNpc.getEntityId())
@@ -0,0 +1,127 @@
+package com.github.juliarn.npc.modifier;
+
+/**
+ * Computes the packet angles a npc needs to look at a position, without allocating and using a
+ * lookup table instead of the trigonometric functions of {@link Math}. The table is precise enough
+ * for the angles sent in packets, which only have 256 steps for a full rotation.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+public final class LookAtAngles {
+
+  /**
+   * The amount of entries in the arc tangent table, excluding the last entry for {@code 1}.
+   */
+  private static final int ATAN_TABLE_SIZE = 4096;
+  /**
+   * The arc tangent of {@code i / ATAN_TABLE_SIZE}, in 1/256 of a full rotation.
+   */
+  private static final float[] ATAN_TABLE = new float[ATAN_TABLE_SIZE + 1];
+  /**
+   * A quarter rotation, in 1/256 of a full rotation.
+   */
+  private static final float QUARTER_ROTATION = 64F;
+  /**
+   * A half rotation, in 1/256 of a full rotation.
+   */
+  private static final float HALF_ROTATION = 128F;
+  /**
+   * A full rotation, in 1/256 of a full rotation.
+   */
+  private static final float FULL_ROTATION = 256F;
+
+  static {
+    for (int i = 0; i <= ATAN_TABLE_SIZE; i++) {
+      ATAN_TABLE[i] = (float) (Math.atan((double) i / ATAN_TABLE_SIZE) * HALF_ROTATION / Math.PI);
+    }
+  }
+
+  private LookAtAngles() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Computes the yaw and pitch a npc needs to look in the given direction. Use {@link
+   * #yaw(short)} and {@link #pitch(short)} to get the angles from the returned value.
+   *
+   * @param xDifference the x difference between the target and the npc.
+   * @param yDifference the y difference between the target and the npc.
+   * @param zDifference the z difference between the target and the npc.
+   * @return the yaw and pitch packet angles, packed into a single value.
+   */
+  public static short lookAt(double xDifference, double yDifference, double zDifference) {
+    float yaw = -atan2(xDifference, zDifference);
+    if (yaw < 0) {
+      yaw += FULL_ROTATION;
+    }
+
+    double horizontal = Math.sqrt(xDifference * xDifference + zDifference * zDifference);
+    float pitch = -atan2(yDifference, horizontal);
+
+    return (short) ((((byte) yaw) << 8) | (((byte) pitch) & 0xFF));
+  }
+
+  /**
+   * Get the yaw packet angle of the given value computed by {@link #lookAt(double, double,
+   * double)}.
+   *
+   * @param angles the packed angles.
+   * @return the yaw angle, 1/256 of a full rotation.
+   */
+  public static byte yaw(short angles) {
+    return (byte) (angles >> 8);
+  }
+
+  /**
+   * Get the pitch packet angle of the given value computed by {@link #lookAt(double, double,
+   * double)}.
+   *
+   * @param angles the packed angles.
+   * @return the pitch angle, 1/256 of a full rotation.
+   */
+  public static byte pitch(short angles) {
+    return (byte) angles;
+  }
+
+  /**
+   * Computes the arc tangent of {@code y / x} like {@link Math#atan2(double, double)}, using the
+   * lookup table.
+   *
+   * @param y the ordinate coordinate.
+   * @param x the abscissa coordinate.
+   * @return the angle in 1/256 of a full rotation, between {@code -128} and {@code 128}.
+   */
+  private static float atan2(double y, double x) {
+    double absY = Math.abs(y);
+    double absX = Math.abs(x);
+    if (absY == 0 && absX == 0) {
+      return 0;
+    }
+
+    // reduce to the first octant, where the ratio is between 0 and 1
+    float angle = absY <= absX
+        ? atan(absY / absX)
+        : QUARTER_ROTATION - atan(absX / absY);
+    if (x < 0) {
+      angle = HALF_ROTATION - angle;
+    }
+    return y < 0 ? -angle : angle;
+  }
+
+  /**
+   * Computes the arc tangent of the given ratio by interpolating between the table entries.
+   *
+   * @param ratio the ratio, between {@code 0} and {@code 1}.
+   * @return the angle in 1/256 of a full rotation, between {@code 0} and {@code 32}.
+   */
+  private static float atan(double ratio) {
+    double position = ratio * ATAN_TABLE_SIZE;
+    int index = (int) position;
+    if (index >= ATAN_TABLE_SIZE) {
+      return ATAN_TABLE[ATAN_TABLE_SIZE];
+    }
+
+    float lower = ATAN_TABLE[index];
+    return lower + (ATAN_TABLE[index + 1] - lower) * (float) (position - index);
+  }
+}
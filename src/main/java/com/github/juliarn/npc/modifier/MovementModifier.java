@@ -60,6 +60,8 @@ public MovementModifier queueMovement(@NotNull Location location) {
     });
 
     npc.setLocation(location);
+    // the movement packet overrides the rotation the npc tick sent to the players
+    npc.resetLookAtRotations();
 
     return this;
   }
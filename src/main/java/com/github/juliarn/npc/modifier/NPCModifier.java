@@ -4,7 +4,9 @@
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.github.juliarn.npc.NPC;
+import com.github.juliarn.npc.NPCPool;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -69,8 +71,28 @@ protected void queuePacket(@NotNull LazyPacket packet) {
    * @since 2.7-SNAPSHOT
    */
   protected void queueInstantly(@NotNull LazyPacket packet) {
-    PacketContainer container = packet.provide(this.npc, null);
-    this.packetContainers.add(($, $1) -> container);
+    this.packetContainers.add(new InstantPacket(packet.provide(this.npc, null), false));
+  }
+
+  /**
+   * Queues a packet which is the same for every player and only depends on the state of the npc
+   * and the given key. The template cached by the npc is reused if it was built for the same key,
+   * otherwise the packet is built instantly and cached.
+   *
+   * @param kind   the kind of the packet.
+   * @param key    the key the packet is built for, {@code 0} for packets which only depend on the
+   *               npc.
+   * @param packet the packet to queue.
+   * @see PacketTemplates
+   * @since 2.8.1-SNAPSHOT
+   */
+  protected void queueTemplate(
+      @NotNull PacketTemplates.Kind kind,
+      int key,
+      @NotNull LazyPacket packet
+  ) {
+    this.packetContainers.add(new InstantPacket(this.npc.getPacketTemplates()
+        .get(kind, key, () -> packet.provide(this.npc, null)), true));
   }
 
   /**
@@ -81,17 +103,28 @@ public void send() {
   }
 
   /**
-   * Sends the queued modifications to all given {@code players}.
+   * Sends the queued modifications to all given {@code players}. If enabled on the pool of the
+   * npc, the packets which are the same for every player are serialized only once when sent to
+   * more than one player, the cached templates of the npc are serialized only once at all.
    *
    * @param players The receivers of the packet.
+   * @see NPCPool.Builder#serializedBroadcast(boolean)
    */
   public void send(@NotNull Iterable<? extends Player> players) {
+    PacketBroadcaster broadcaster = this.npc.getPool().getPacketBroadcaster();
+    if (broadcaster != null) {
+      List<Player> targets = new ArrayList<>();
+      players.forEach(targets::add);
+      this.broadcast(broadcaster, targets);
+      return;
+    }
+
     players.forEach(player -> {
       try {
         for (LazyPacket packetContainer : this.packetContainers) {
-          ProtocolLibrary.getProtocolManager().sendServerPacket(
-              player,
-              packetContainer.provide(this.npc, player));
+          PacketContainer container = packetContainer.provide(this.npc, player);
+          ProtocolLibrary.getProtocolManager().sendServerPacket(player, container);
+          this.npc.getPool().getMetrics().recordPacket(container.getType());
         }
       } catch (InvocationTargetException exception) {
         exception.printStackTrace();
@@ -100,6 +133,43 @@ public void send(@NotNull Iterable<? extends Player> players) {
     this.packetContainers.clear();
   }
 
+  /**
+   * Sends the queued modifications to all given {@code players}, using the given broadcaster for
+   * the packets which are the same for every player. The packets are sent in the order they were
+   * queued to each player.
+   *
+   * @param broadcaster the broadcaster of the pool of the npc.
+   * @param players     The receivers of the packet.
+   */
+  private void broadcast(@NotNull PacketBroadcaster broadcaster, @NotNull List<Player> players) {
+    for (LazyPacket packetContainer : this.packetContainers) {
+      // the templates are serialized once even if they are sent to one player at a time
+      if (packetContainer instanceof InstantPacket
+          && (players.size() > 1 || ((InstantPacket) packetContainer).template)) {
+        PacketContainer container = ((InstantPacket) packetContainer).container;
+        try {
+          broadcaster.broadcast(container, players);
+          this.npc.getPool().getMetrics().recordPacket(container.getType(), players.size());
+        } catch (InvocationTargetException exception) {
+          exception.printStackTrace();
+        }
+        continue;
+      }
+
+      // built for every single player
+      for (Player player : players) {
+        try {
+          PacketContainer container = packetContainer.provide(this.npc, player);
+          ProtocolLibrary.getProtocolManager().sendServerPacket(player, container);
+          this.npc.getPool().getMetrics().recordPacket(container.getType());
+        } catch (InvocationTargetException exception) {
+          exception.printStackTrace();
+        }
+      }
+    }
+    this.packetContainers.clear();
+  }
+
   /**
    * Sends the queued modifications to certain players
    *
@@ -109,6 +179,28 @@ public void send(@NotNull Player... targetPlayers) {
     this.send(Arrays.asList(targetPlayers));
   }
 
+  /**
+   * A packet which was built instantly and is the same for every player, optionally a cached
+   * template of the npc.
+   */
+  private static final class InstantPacket implements LazyPacket {
+
+    private final PacketContainer container;
+    private final boolean template;
+
+    private InstantPacket(@NotNull PacketContainer container, boolean template) {
+      this.container = container;
+      this.template = template;
+    }
+
+    @Override
+    public @NotNull PacketContainer provide(@NotNull NPC targetNpc, Player target) {
+      // the packet listeners of ProtocolLib may modify the packet, which must not change the
+      // template cached by the npc
+      return this.template ? this.container.shallowClone() : this.container;
+    }
+  }
+
   /**
    * Represents a packet which gets build lazily, normally before sending to a player.
    *
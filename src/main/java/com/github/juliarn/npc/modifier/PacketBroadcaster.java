@@ -0,0 +1,124 @@
+package com.github.juliarn.npc.modifier;
+
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.utility.MinecraftProtocolVersion;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.logging.Level;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sends packets which are the same for every player, serializing each packet only once. The
+ * serialized packet is sent as a wire packet through ProtocolLib, which writes the same bytes to
+ * the connection of every player. The serialized form of a packet is kept as long as the packet
+ * itself is referenced, so the cached templates of a npc are serialized once even when they are
+ * sent to one player at a time. Players using another protocol version than the server, for
+ * example through a protocol translation plugin, receive a shallow copy of the packet instead, as
+ * the packet listeners of ProtocolLib may modify it for the receiving player. The serialized
+ * packets sent by this broadcaster are not passed to the packet listeners of ProtocolLib.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+@ApiStatus.Internal
+public final class PacketBroadcaster {
+
+  private final Plugin plugin;
+  private final int serverProtocolVersion;
+
+  /**
+   * The serialized packets, by the identity of their container.
+   */
+  private final Cache<PacketContainer, WirePacket> serializedPackets = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  /**
+   * If the serialization failed, after which all packets are sent as usual.
+   */
+  private volatile boolean unsupported;
+
+  /**
+   * Creates a new broadcaster.
+   *
+   * @param plugin the plugin using the broadcaster, used for logging.
+   */
+  public PacketBroadcaster(@NotNull Plugin plugin) {
+    this.plugin = plugin;
+    this.serverProtocolVersion = MinecraftProtocolVersion.getCurrentVersion();
+  }
+
+  /**
+   * Sends the given packet to all given players.
+   *
+   * @param container the packet to send, which must be the same for every player and must not be
+   *                  changed afterwards.
+   * @param players   the players to send the packet to.
+   * @throws InvocationTargetException if sending the packet failed.
+   */
+  public void broadcast(
+      @NotNull PacketContainer container,
+      @NotNull Collection<? extends Player> players
+  ) throws InvocationTargetException {
+    ProtocolManager protocolManager = ProtocolLibrary.getProtocolManager();
+    WirePacket serialized = this.unsupported ? null : this.serialize(container);
+    for (Player player : players) {
+      // the serialized packet is only valid for the protocol version of the server
+      if (serialized != null
+          && protocolManager.getProtocolVersion(player) == this.serverProtocolVersion) {
+        protocolManager.sendWirePacket(player, serialized);
+      } else {
+        // the container may be a template cached by the npc, which the packet listeners must not
+        // change for the other receivers
+        protocolManager.sendServerPacket(player, container.shallowClone());
+      }
+    }
+  }
+
+  /**
+   * Get the serialized form of the given packet, serializing it if needed.
+   *
+   * @param container the packet to serialize.
+   * @return the serialized packet, null if the packet can't be serialized.
+   */
+  @Nullable
+  private WirePacket serialize(@NotNull PacketContainer container) {
+    WirePacket serialized = this.serializedPackets.getIfPresent(container);
+    if (serialized != null) {
+      return serialized;
+    }
+
+    try {
+      serialized = WirePacket.fromPacket(container);
+    } catch (RuntimeException exception) {
+      this.disable(exception);
+      return null;
+    }
+    this.serializedPackets.put(container, serialized);
+    return serialized;
+  }
+
+  /**
+   * Sends all further packets as usual, because the serialization is not supported by the server.
+   *
+   * @param exception the exception which occurred.
+   */
+  private void disable(@NotNull Exception exception) {
+    if (!this.unsupported) {
+      this.unsupported = true;
+      this.serializedPackets.invalidateAll();
+      this.plugin.getLogger().log(
+          Level.WARNING,
+          "Unable to serialize npc packets, sending them to every player separately",
+          exception);
+    }
+  }
+}
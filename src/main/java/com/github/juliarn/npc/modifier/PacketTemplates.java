@@ -0,0 +1,134 @@
+package com.github.juliarn.npc.modifier;
+
+import com.comphenix.protocol.events.PacketContainer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Caches the packets of a npc which are the same for every player, so that repeated shows, hides,
+ * rotations and animations reuse the built containers instead of building them again. Each kind
+ * of packet holds the last built container together with the key it was built for, for example
+ * the angles of a rotation. All templates are invalidated when the state of the npc they depend
+ * on changes.
+ * <p>
+ * The templates are shared by all receivers and must not be modified. As the packet listeners of
+ * ProtocolLib may modify the packets they see, every player receives either the serialized
+ * template, which is not passed to the listeners, or a shallow copy of it. Listeners changing the
+ * objects referenced by a packet, for example the entries of the player list packet, instead of
+ * replacing them still change the template for the following receivers.
+ *
+ * @since 2.8.1-SNAPSHOT
+ */
+@ApiStatus.Internal
+public final class PacketTemplates {
+
+  /**
+   * The cached templates by the ordinal of their kind.
+   */
+  private final AtomicReferenceArray<Template> templates =
+      new AtomicReferenceArray<>(Kind.VALUES.length);
+
+  /**
+   * The amount of invalidations so far, templates built during an invalidation are not cached.
+   */
+  private long version;
+
+  /**
+   * Get the template of the given kind built for the given key, building and caching it if
+   * needed.
+   *
+   * @param kind    the kind of the packet.
+   * @param key     the key the packet is built for, {@code 0} for packets which only depend on the
+   *                npc.
+   * @param factory builds the packet if no template for the key is cached.
+   * @return the template of the packet.
+   */
+  @NotNull
+  public PacketContainer get(
+      @NotNull Kind kind,
+      int key,
+      @NotNull Supplier<PacketContainer> factory
+  ) {
+    Template template = this.templates.get(kind.ordinal());
+    if (template != null && template.key == key) {
+      return template.container;
+    }
+
+    long version;
+    synchronized (this) {
+      version = this.version;
+    }
+
+    PacketContainer container = factory.get();
+    synchronized (this) {
+      if (this.version == version) {
+        this.templates.set(kind.ordinal(), new Template(key, container));
+      }
+    }
+    return container;
+  }
+
+  /**
+   * Invalidates all templates, called when the state of the npc changes.
+   */
+  public void invalidate() {
+    synchronized (this) {
+      this.version++;
+      for (int i = 0; i < this.templates.length(); i++) {
+        this.templates.set(i, null);
+      }
+    }
+  }
+
+  /**
+   * The kinds of packets which are cached.
+   */
+  public enum Kind {
+    /**
+     * The spawn of the npc.
+     */
+    SPAWN,
+    /**
+     * The destruction of the npc.
+     */
+    DESTROY,
+    /**
+     * The addition of the npc to the player list.
+     */
+    PLAYER_LIST_ADD,
+    /**
+     * The removal of the npc from the player list.
+     */
+    PLAYER_LIST_REMOVE,
+    /**
+     * The head rotation, keyed by the yaw angle.
+     */
+    HEAD_ROTATION,
+    /**
+     * The body rotation, keyed by the packed angles.
+     */
+    ROTATION,
+    /**
+     * An animation, keyed by the animation id.
+     */
+    ANIMATION;
+
+    private static final Kind[] VALUES = values();
+  }
+
+  /**
+   * A cached container and the key it was built for.
+   */
+  private static final class Template {
+
+    private final int key;
+    private final PacketContainer container;
+
+    private Template(int key, PacketContainer container) {
+      this.key = key;
+      this.container = container;
+    }
+  }
+}
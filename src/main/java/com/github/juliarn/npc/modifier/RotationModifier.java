@@ -23,6 +23,17 @@ public RotationModifier(@NotNull NPC npc) {
     super(npc);
   }
 
+  /**
+   * Converts the given angle in degrees to the angle representation used in packets.
+   *
+   * @param degrees the angle in degrees.
+   * @return the angle as sent in packets, 1/256 of a full rotation.
+   * @since 2.8.1-SNAPSHOT
+   */
+  public static byte toAngle(float degrees) {
+    return (byte) (degrees * 256F / 360F);
+  }
+
   /**
    * Queues the change of the current rotation of the wrapped npc.
    *
@@ -32,18 +43,33 @@ public RotationModifier(@NotNull NPC npc) {
    */
   @NotNull
   public RotationModifier queueRotate(float yaw, float pitch) {
-    byte yawAngle = (byte) (yaw * 256F / 360F);
-    byte pitchAngle = (byte) (pitch * 256F / 360F);
+    // the rotation is no longer the one the npc tick sent to the players
+    super.npc.resetLookAtRotations();
+    return this.queueRotate(toAngle(yaw), toAngle(pitch));
+  }
+
+  /**
+   * Queues the change of the current rotation of the wrapped npc to the given packet angles.
+   *
+   * @param yawAngle   The yaw of the rotation, 1/256 of a full rotation.
+   * @param pitchAngle The pitch of the rotation, 1/256 of a full rotation.
+   * @return The same instance of this class, for chaining.
+   * @since 2.8.1-SNAPSHOT
+   */
+  @NotNull
+  @ApiStatus.Internal
+  public RotationModifier queueRotate(byte yawAngle, byte pitchAngle) {
     // head rotation
-    super.queueInstantly((targetNpc, target) -> {
+    super.queueTemplate(PacketTemplates.Kind.HEAD_ROTATION, yawAngle, (targetNpc, target) -> {
       PacketContainer container = new PacketContainer(Server.ENTITY_HEAD_ROTATION);
       container.getIntegers().write(0, targetNpc.getEntityId());
       container.getBytes().write(0, yawAngle);
 
       return container;
     });
-    // entity position
-    super.queueInstantly((targetNpc, target) -> {
+    // entity position, keyed by both angles
+    int angles = (yawAngle << 8) | (pitchAngle & 0xFF);
+    super.queueTemplate(PacketTemplates.Kind.ROTATION, angles, (targetNpc, target) -> {
       PacketContainer container;
       if (MINECRAFT_VERSION < 9) {
         container = new PacketContainer(Server.ENTITY_TELEPORT);
@@ -77,18 +103,14 @@ public RotationModifier queueRotate(float yaw, float pitch) {
    */
   @NotNull
   public RotationModifier queueLookAt(@NotNull Location location) {
-    double xDifference = location.getX() - super.npc.getLocation().getX();
-    double yDifference = location.getY() - super.npc.getLocation().getY();
-    double zDifference = location.getZ() - super.npc.getLocation().getZ();
-
-    double r = Math
-        .sqrt(Math.pow(xDifference, 2) + Math.pow(yDifference, 2) + Math.pow(zDifference, 2));
-
-    float yaw = (float) (-Math.atan2(xDifference, zDifference) / Math.PI * 180D);
-    yaw = yaw < 0 ? yaw + 360 : yaw;
-
-    float pitch = (float) (-Math.asin(yDifference / r) / Math.PI * 180D);
+    Location npcLocation = super.npc.getLocation();
+    short angles = LookAtAngles.lookAt(
+        location.getX() - npcLocation.getX(),
+        location.getY() - npcLocation.getY(),
+        location.getZ() - npcLocation.getZ());
 
-    return this.queueRotate(yaw, pitch);
+    // the rotation is no longer the one the npc tick sent to the players
+    super.npc.resetLookAtRotations();
+    return this.queueRotate(LookAtAngles.yaw(angles), LookAtAngles.pitch(angles));
   }
 }
@@ -19,6 +19,11 @@
  */
 public class VisibilityModifier extends NPCModifier {
 
+  /**
+   * The display name of the npc in the player list, which is the same for every npc.
+   */
+  private static final WrappedChatComponent EMPTY_DISPLAY_NAME = WrappedChatComponent.fromText("");
+
   /**
    * Creates a new modifier.
    *
@@ -50,31 +55,59 @@ public VisibilityModifier queuePlayerListChange(@NotNull PlayerInfoAction action
    */
   @NotNull
   public VisibilityModifier queuePlayerListChange(@NotNull EnumWrappers.PlayerInfoAction action) {
-    super.queuePacket((targetNpc, target) -> {
-      PacketContainer container = new PacketContainer(Server.PLAYER_INFO);
-      container.getPlayerInfoAction().write(0, action);
-      // get the correct profile
-      WrappedGameProfile profile = targetNpc.getGameProfile();
-      // we only need to re-create the profile when the player gets added
-      if (action == EnumWrappers.PlayerInfoAction.ADD_PLAYER && targetNpc.isUsePlayerProfiles()) {
+    // the profile of the player being added to is different for every player
+    if (action == EnumWrappers.PlayerInfoAction.ADD_PLAYER && super.npc.isUsePlayerProfiles()) {
+      super.queuePacket((targetNpc, target) -> {
+        WrappedGameProfile profile = targetNpc.getGameProfile();
         WrappedGameProfile playerProfile = WrappedGameProfile.fromPlayer(target);
         // copy the properties
         profile = new WrappedGameProfile(profile.getUUID(), profile.getName());
         profile.getProperties().putAll(playerProfile.getProperties());
-      }
-      // create tge player info data
-      PlayerInfoData data = new PlayerInfoData(
-          profile,
-          20,
-          NativeGameMode.CREATIVE,
-          WrappedChatComponent.fromText(""));
-      container.getPlayerInfoDataLists().write(0, new ArrayList<>(Collections.singletonList(data)));
-      return container;
-    });
+        return this.createPlayerListChange(action, profile);
+      });
+    } else if (action == EnumWrappers.PlayerInfoAction.ADD_PLAYER) {
+      super.queueTemplate(
+          PacketTemplates.Kind.PLAYER_LIST_ADD,
+          0,
+          (targetNpc, target) -> this.createPlayerListChange(action, targetNpc.getGameProfile()));
+    } else if (action == EnumWrappers.PlayerInfoAction.REMOVE_PLAYER) {
+      super.queueTemplate(
+          PacketTemplates.Kind.PLAYER_LIST_REMOVE,
+          0,
+          (targetNpc, target) -> this.createPlayerListChange(action, targetNpc.getGameProfile()));
+    } else {
+      super.queuePacket((targetNpc, target) -> this.createPlayerListChange(
+          action,
+          targetNpc.getGameProfile()));
+    }
 
     return this;
   }
 
+  /**
+   * Creates the packet changing the player list entry of the wrapped npc.
+   *
+   * @param action  The action of the player list change as a protocol lib wrapper.
+   * @param profile The profile of the player list entry.
+   * @return The created packet.
+   */
+  @NotNull
+  private PacketContainer createPlayerListChange(
+      @NotNull EnumWrappers.PlayerInfoAction action,
+      @NotNull WrappedGameProfile profile
+  ) {
+    PacketContainer container = new PacketContainer(Server.PLAYER_INFO);
+    container.getPlayerInfoAction().write(0, action);
+    // create the player info data
+    PlayerInfoData data = new PlayerInfoData(
+        profile,
+        20,
+        NativeGameMode.CREATIVE,
+        EMPTY_DISPLAY_NAME);
+    container.getPlayerInfoDataLists().write(0, new ArrayList<>(Collections.singletonList(data)));
+    return container;
+  }
+
   /**
    * Enqueues the spawn of the wrapped npc.
    *
@@ -82,7 +115,7 @@ public VisibilityModifier queuePlayerListChange(@NotNull EnumWrappers.PlayerInfo
    */
   @NotNull
   public VisibilityModifier queueSpawn() {
-    super.queueInstantly((targetNpc, target) -> {
+    super.queueTemplate(PacketTemplates.Kind.SPAWN, 0, (targetNpc, target) -> {
       PacketContainer container = new PacketContainer(Server.NAMED_ENTITY_SPAWN);
       container.getIntegers().write(0, targetNpc.getEntityId());
       container.getUUIDs().write(0, targetNpc.getProfile().getUniqueId());
@@ -123,7 +156,7 @@ public VisibilityModifier queueSpawn() {
    */
   @NotNull
   public VisibilityModifier queueDestroy() {
-    super.queueInstantly((targetNpc, target) -> {
+    super.queueTemplate(PacketTemplates.Kind.DESTROY, 0, (targetNpc, target) -> {
       PacketContainer container = new PacketContainer(Server.ENTITY_DESTROY);
       if (MINECRAFT_VERSION >= 17) {
         container.getIntLists()